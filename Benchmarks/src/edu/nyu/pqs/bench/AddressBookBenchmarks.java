@@ -0,0 +1,151 @@
+package edu.nyu.pqs.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark suite covering all address book implementations of the
+ * repository: edu.nyu.pqs.ps1.AddressBook (PS1), assignment1.addressbook.AddressBook
+ * (PS2/code_review) and addressbook.AddressBook (PS3). For every implementation
+ * and every book size it measures :
+ * <ul>
+ * <li> add : filling a new book with all contacts, one at a time </li>
+ * <li> remove : removing a contact and adding it again </li>
+ * <li> search hit : searching for the unique email of one contact </li>
+ * <li> search miss : searching for an email no contact has </li>
+ * <li> export and import of the whole book </li>
+ * </ul>
+ * Usage: AddressBookBenchmarks [sizes] [implementations], e.g.
+ * AddressBookBenchmarks 1000,100000,10000000 ps1,ps3. The implementations
+ * are named ps1, ps2 and ps3 after their folder. By default all
+ * implementations are measured with 1,000, 10,000 and 100,000 contacts.
+ * The system properties bench.warmup, bench.iterations and bench.millis set
+ * the number of warmup and measured iterations and the iteration length.
+ * @author Anuj Bora
+ */
+public class AddressBookBenchmarks {
+  private static final String DEFAULT_SIZES = "1000,10000,100000";
+  private static final long SEED = 42L;
+  private static final String MISSING_EMAIL = "nobody@nowhere.invalid";
+
+  public static void main(String[] args) throws Exception {
+    String[] sizes = ((args.length > 0) ? args[0] : DEFAULT_SIZES).split(",");
+    List<BookUnderTest> books = select((args.length > 1) ? args[1] : null);
+    Harness harness = new Harness(Integer.getInteger("bench.warmup", 3),
+        Integer.getInteger("bench.iterations", 5), Integer.getInteger("bench.millis", 1000));
+    Path directory = Files.createTempDirectory("addressbook-bench");
+
+    System.out.println(Harness.Result.header());
+    for (String size : sizes) {
+      int count = Integer.parseInt(size.trim());
+      List<ContactGenerator.SyntheticContact> contacts = new ContactGenerator(SEED).generate(count);
+      for (BookUnderTest book : books) {
+        run(harness, book, contacts, directory);
+      }
+    }
+    for (File f : directory.toFile().listFiles()) {
+      f.delete();
+    }
+    directory.toFile().delete();
+  }
+
+  private static void run(Harness harness, final BookUnderTest book,
+      List<ContactGenerator.SyntheticContact> contacts, Path directory) throws Exception {
+    final int count = contacts.size();
+    final String prefix = book.name() + "/" + count + " ";
+    book.load(contacts);
+
+    print(harness.measure(prefix + "add x" + count, new Harness.Operation() {
+      @Override
+      public Object run() {
+        return book.addAll();
+      }
+    }));
+
+    // Remove contacts in random order so that no implementation profits from
+    // always finding the contact at the same place
+    final int[] order = new int[Math.min(count, 1 << 16)];
+    Random random = new Random(SEED);
+    for (int i = 0; i < order.length; i++) {
+      order[i] = random.nextInt(count);
+    }
+    print(harness.measure(prefix + "remove", new Harness.Operation() {
+      private int next = 0;
+
+      @Override
+      public Object run() {
+        next = (next + 1) % order.length;
+        return book.removeAndAdd(order[next]);
+      }
+    }));
+
+    // Emails are unique; the trailing @ prevents user1 from matching user10
+    final String hit = "user" + (count / 2) + "@";
+    print(harness.measure(prefix + "search hit", new Harness.Operation() {
+      @Override
+      public Object run() {
+        return book.searchEmail(hit);
+      }
+    }));
+    print(harness.measure(prefix + "search miss", new Harness.Operation() {
+      @Override
+      public Object run() {
+        return book.searchEmail(MISSING_EMAIL);
+      }
+    }));
+
+    final String path = directory.resolve(book.name() + "-" + count + ".json").toString();
+    print(harness.measure(prefix + "export", new Harness.Operation() {
+      @Override
+      public Object run() throws Exception {
+        book.export(path);
+        return path;
+      }
+    }));
+    print(harness.measure(prefix + "import", new Harness.Operation() {
+      @Override
+      public Object run() throws Exception {
+        return book.importFrom(path);
+      }
+    }));
+    // Release the contacts before the next implementation is loaded
+    book.load(new ArrayList<ContactGenerator.SyntheticContact>());
+  }
+
+  private static List<BookUnderTest> select(String names) {
+    List<BookUnderTest> all = new ArrayList<BookUnderTest>();
+    all.add(new Ps1Book());
+    all.add(new Ps2Book());
+    all.add(new Ps3Book());
+    if (names == null) {
+      return all;
+    }
+    StringBuilder known = new StringBuilder();
+    for (BookUnderTest book : all) {
+      known.append((known.length() == 0) ? "" : ", ").append(book.name());
+    }
+    List<BookUnderTest> selected = new ArrayList<BookUnderTest>();
+    for (String name : names.split(",")) {
+      boolean found = false;
+      for (BookUnderTest book : all) {
+        if (book.name().equals(name.trim())) {
+          selected.add(book);
+          found = true;
+        }
+      }
+      if (!found) {
+        throw new IllegalArgumentException("Unknown implementation: " + name
+            + ", expected one of " + known);
+      }
+    }
+    return selected;
+  }
+
+  private static void print(Harness.Result result) {
+    System.out.println(result);
+  }
+}
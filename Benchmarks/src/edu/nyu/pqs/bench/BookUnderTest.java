@@ -0,0 +1,60 @@
+package edu.nyu.pqs.bench;
+
+import java.util.List;
+
+/**
+ * Adapter giving the benchmarks a common view of an address book
+ * implementation. An adapter owns one address book at a time, filled with the
+ * contacts passed to load.
+ * @author Anuj Bora
+ */
+abstract class BookUnderTest {
+  /**
+   * Returns the name of the implementation used in benchmark results
+   */
+  abstract String name();
+
+  /**
+   * Converts the synthetic contacts into contacts of the implementation and
+   * replaces the current address book with a new one holding all of them
+   * @param contacts contacts to be loaded
+   */
+  abstract void load(List<ContactGenerator.SyntheticContact> contacts);
+
+  /**
+   * Creates a new address book and adds all loaded contacts one at a time
+   * @return the new address book
+   */
+  abstract Object addAll();
+
+  /**
+   * Removes the loaded contact at index from the current address book and adds
+   * it again, which keeps the size of the address book constant
+   * @param index index of a loaded contact
+   * @return result of the removal
+   */
+  abstract Object removeAndAdd(int index);
+
+  /**
+   * Searches the current address book for contacts whose email contains term.
+   * Implementations without per-attribute search search all attributes.
+   * @param term search term
+   * @return List of matched contacts
+   */
+  abstract List<?> searchEmail(String term);
+
+  /**
+   * Imports the file written by export into a new address book
+   * @param path path of the file
+   * @return the new address book
+   * @throws Exception if the file can't be read
+   */
+  abstract Object importFrom(String path) throws Exception;
+
+  /**
+   * Exports the current address book
+   * @param path path of the file
+   * @throws Exception if the file can't be written
+   */
+  abstract void export(String path) throws Exception;
+}
@@ -0,0 +1,91 @@
+package edu.nyu.pqs.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic generator of synthetic contacts. The same seed always yields
+ * the same contacts, so runs of different implementations and of different
+ * versions of the code are comparable. Generated values only use fields and
+ * formats accepted by all address book implementations; in particular phone
+ * numbers have nine digits so that they fit into an int.
+ * @author Anuj Bora
+ */
+public class ContactGenerator {
+  private static final String[] FIRST_NAMES = { "Anna", "John", "Maria", "Wei",
+    "Priya", "Carlos", "Fatima", "Olga", "Kenji", "Amara", "Liam", "Sofia" };
+  private static final String[] LAST_NAMES = { "Smith", "Garcia", "Chen", "Patel",
+    "Kowalski", "Okafor", "Tanaka", "Silva", "Novak", "Brown", "Haddad", "Ivanova" };
+  private static final String[] STREETS = { "Broadway", "Mercer Street",
+    "Washington Square", "Bleecker Street", "Houston Street", "Lafayette Street" };
+  private static final String[] DOMAINS = { "nyu.edu", "gmail.com", "example.org" };
+
+  private final long seed;
+
+  public ContactGenerator(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * Generates count contacts. Contact i has the unique email "user{i}@..."
+   * and the unique phone number 100000000 + i.
+   * @param count number of contacts, at most 899,999,999
+   * @return List of generated contacts
+   */
+  public List<SyntheticContact> generate(int count) {
+    Random random = new Random(seed);
+    List<SyntheticContact> contacts = new ArrayList<SyntheticContact>(count);
+    for (int i = 0; i < count; i++) {
+      String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+          + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+      String phone = String.valueOf(100000000 + i);
+      String email = "user" + i + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+      String address = (1 + random.nextInt(999)) + " "
+          + STREETS[random.nextInt(STREETS.length)] + ", New York";
+      String note = (random.nextInt(10) == 0) ? "met at conference " + random.nextInt(100) : "";
+      contacts.add(new SyntheticContact(name, phone, email, address, note));
+    }
+    return contacts;
+  }
+
+  /**
+   * Values of a generated contact, independent of any implementation
+   */
+  public static final class SyntheticContact {
+    private final String name;
+    private final String phoneNumber;
+    private final String email;
+    private final String address;
+    private final String note;
+
+    SyntheticContact(String name, String phoneNumber, String email, String address,
+        String note) {
+      this.name = name;
+      this.phoneNumber = phoneNumber;
+      this.email = email;
+      this.address = address;
+      this.note = note;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getPhoneNumber() {
+      return phoneNumber;
+    }
+
+    public String getEmail() {
+      return email;
+    }
+
+    public String getAddress() {
+      return address;
+    }
+
+    public String getNote() {
+      return note;
+    }
+  }
+}
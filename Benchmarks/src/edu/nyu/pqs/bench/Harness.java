@@ -0,0 +1,198 @@
+package edu.nyu.pqs.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal benchmark harness. Every benchmark runs a number of warmup
+ * iterations, whose results are discarded, followed by measured iterations.
+ * For the measured iterations it reports :
+ * <ul>
+ * <li> throughput in operations per second </li>
+ * <li> bytes allocated by the benchmark thread per operation and per second,
+ *   the same figures as reported by the gc profiler of JMH </li>
+ * <li> number of garbage collections and time spent in them </li>
+ * </ul>
+ * Allocation figures rely on com.sun.management.ThreadMXBean, which is
+ * available on HotSpot based JVMs; they are reported as -1 elsewhere.
+ * @author Anuj Bora
+ */
+public final class Harness {
+  private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+  /**
+   * Operation to be measured. The returned value is consumed by the harness so
+   * that the JIT compiler can't eliminate the work as dead code.
+   */
+  public interface Operation {
+    Object run() throws Exception;
+  }
+
+  /*
+   * Sink for the results of operations, see Operation
+   */
+  private static volatile Object sink;
+
+  private final int warmupIterations;
+  private final int measurementIterations;
+  private final long iterationNanos;
+
+  /**
+   * Creates a harness
+   * @param warmupIterations number of iterations which aren't measured
+   * @param measurementIterations number of measured iterations
+   * @param iterationMillis minimum duration of a single iteration
+   */
+  public Harness(int warmupIterations, int measurementIterations, long iterationMillis) {
+    if (warmupIterations < 0 || measurementIterations <= 0 || iterationMillis <= 0) {
+      throw new IllegalArgumentException("Invalid harness configuration");
+    }
+    this.warmupIterations = warmupIterations;
+    this.measurementIterations = measurementIterations;
+    this.iterationNanos = TimeUnit.MILLISECONDS.toNanos(iterationMillis);
+  }
+
+  /**
+   * Measures operation and returns the result, repeating it until each
+   * iteration lasted at least the configured duration
+   * @param name name of the benchmark used in the result
+   * @param operation Operation to be measured
+   * @return Result of the measured iterations
+   * @throws Exception if the operation throws
+   */
+  public Result measure(String name, Operation operation) throws Exception {
+    for (int i = 0; i < warmupIterations; i++) {
+      iterate(operation);
+    }
+    long gcCountBefore = gcCount();
+    long gcMillisBefore = gcMillis();
+    long bytesBefore = allocatedBytes();
+    long operations = 0;
+    long nanos = 0;
+    for (int i = 0; i < measurementIterations; i++) {
+      long start = System.nanoTime();
+      operations += iterate(operation);
+      nanos += System.nanoTime() - start;
+    }
+    long bytesAfter = allocatedBytes();
+    long bytes = (bytesBefore < 0 || bytesAfter < 0) ? -1 : bytesAfter - bytesBefore;
+    return new Result(name, operations, nanos, bytes, gcCount() - gcCountBefore,
+        gcMillis() - gcMillisBefore);
+  }
+
+  /**
+   * Runs operation repeatedly for one iteration
+   * @return number of operations run
+   */
+  private long iterate(Operation operation) throws Exception {
+    long deadline = System.nanoTime() + iterationNanos;
+    long operations = 0;
+    do {
+      sink = operation.run();
+      operations++;
+    } while (System.nanoTime() < deadline);
+    return operations;
+  }
+
+  /**
+   * Returns the number of bytes allocated so far by the current thread, -1 if
+   * the JVM can't tell
+   */
+  private static long allocatedBytes() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+      if (hotspot.isThreadAllocatedMemorySupported()
+          && hotspot.isThreadAllocatedMemoryEnabled()) {
+        return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(0, gc.getCollectionTime());
+    }
+    return millis;
+  }
+
+  /**
+   * Figures of the measured iterations of a benchmark. Instances are immutable.
+   */
+  public static final class Result {
+    private final String name;
+    private final long operations;
+    private final long nanos;
+    private final long allocatedBytes;
+    private final long gcCount;
+    private final long gcMillis;
+
+    Result(String name, long operations, long nanos, long allocatedBytes, long gcCount,
+        long gcMillis) {
+      this.name = name;
+      this.operations = operations;
+      this.nanos = nanos;
+      this.allocatedBytes = allocatedBytes;
+      this.gcCount = gcCount;
+      this.gcMillis = gcMillis;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public double operationsPerSecond() {
+      return operations * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    /**
+     * Returns bytes allocated per operation, -1 if unknown
+     */
+    public double bytesPerOperation() {
+      return (allocatedBytes < 0) ? -1 : allocatedBytes / (double) operations;
+    }
+
+    /**
+     * Returns the allocation rate in MB per second, -1 if unknown
+     */
+    public double allocationRate() {
+      if (allocatedBytes < 0) {
+        return -1;
+      }
+      return allocatedBytes / BYTES_PER_MEGABYTE * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    public long getGcCount() {
+      return gcCount;
+    }
+
+    public long getGcMillis() {
+      return gcMillis;
+    }
+
+    /**
+     * Header line matching the columns of toString
+     */
+    public static String header() {
+      return String.format("%-48s %14s %14s %12s %6s %8s", "Benchmark", "ops/s",
+          "B/op", "MB/s alloc", "GCs", "GC ms");
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-48s %14.1f %14.1f %12.1f %6d %8d", name,
+          operationsPerSecond(), bytesPerOperation(), allocationRate(), gcCount, gcMillis);
+    }
+  }
+}
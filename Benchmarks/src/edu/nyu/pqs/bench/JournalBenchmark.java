@@ -0,0 +1,109 @@
+package edu.nyu.pqs.bench;
+
+import edu.nyu.pqs.ps1.AddressBook;
+import edu.nyu.pqs.ps1.Contact;
+import edu.nyu.pqs.ps1.JournaledAddressBook;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the cost of a durable addition to an Address Book of the given
+ * size. The baseline exports edu.nyu.pqs.ps1.AddressBook after every addition;
+ * JournaledAddressBook logs the addition instead, with 1, 2, 4, ... 16 threads
+ * adding concurrently so that their fsyncs are committed in groups.
+ * Usage: JournalBenchmark [number of contacts] [milliseconds per run]
+ * @author Anuj Bora
+ */
+public class JournalBenchmark {
+  private static final int DEFAULT_CONTACTS = 10000;
+  private static final int DEFAULT_MILLIS = 3000;
+  private static final int MAX_THREADS = 16;
+
+  public static void main(String[] args) throws Exception {
+    int size = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_CONTACTS;
+    long millis = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_MILLIS;
+    Path directory = Files.createTempDirectory("addressbook-journal");
+
+    AddressBook book = new AddressBook();
+    for (int i = 0; i < size; i++) {
+      book.addContact(contact(i));
+    }
+    String exportPath = directory.resolve("book.json").toString();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    long start = System.nanoTime();
+    long exports = 0;
+    while (System.nanoTime() < deadline) {
+      book.addContact(contact(size + (int) exports));
+      book.exportContacts(exportPath);
+      exports++;
+    }
+    report("export after every addition", exports, System.nanoTime() - start);
+
+    for (int threads = 1; threads <= MAX_THREADS; threads *= 2) {
+      Path journal = directory.resolve("journal-" + threads);
+      final JournaledAddressBook journaled = JournaledAddressBook.open(journal);
+      for (int i = 0; i < size; i++) {
+        journaled.addContact(contact(i));
+      }
+      final AtomicLong additions = new AtomicLong();
+      final long runDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+      List<Thread> workers = new ArrayList<Thread>();
+      for (int t = 0; t < threads; t++) {
+        Thread worker = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              while (System.nanoTime() < runDeadline) {
+                journaled.addContact(contact((int) additions.incrementAndGet()));
+              }
+            } catch (InterruptedIOException interrupted) {
+              return;
+            }
+          }
+        });
+        workers.add(worker);
+      }
+      start = System.nanoTime();
+      for (Thread worker : workers) {
+        worker.start();
+      }
+      for (Thread worker : workers) {
+        worker.join();
+      }
+      report("journaled, " + threads + " threads", additions.get(), System.nanoTime() - start);
+      journaled.close();
+      delete(journal.toFile());
+    }
+    delete(directory.toFile());
+  }
+
+  private static Contact contact(int i) {
+    return new Contact.Builder("Contact " + i)
+        .withphoneNumber(String.valueOf(2120000000L + i))
+        .withEmail("contact" + i + "@nyu.edu")
+        .build();
+  }
+
+  private static void report(String name, long operations, long nanos) {
+    System.out.printf("%-32s %12.1f ops/s %12.1f us/op%n", name,
+        operations * (double) TimeUnit.SECONDS.toNanos(1) / nanos,
+        nanos / (double) TimeUnit.MICROSECONDS.toNanos(1) / operations);
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
@@ -0,0 +1,60 @@
+package edu.nyu.pqs.bench;
+
+import edu.nyu.pqs.ps1.AddressBook;
+import edu.nyu.pqs.ps1.Contact;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares the sequential scan of edu.nyu.pqs.ps1.AddressBook.searchContacts
+ * against searchContactsInParallel on pools of 1, 2, 4, ... threads up to the
+ * number of available processors. The keyword is a substring of the notes of
+ * a few contacts only, so the scan dominates the cost.
+ * Usage: ParallelSearchBenchmark [number of contacts]
+ * @author Anuj Bora
+ */
+public class ParallelSearchBenchmark {
+  private static final int DEFAULT_CONTACTS = 1000000;
+  private static final String KEYWORD = "ote 4242";
+
+  public static void main(String[] args) throws Exception {
+    int size = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_CONTACTS;
+    final AddressBook book = new AddressBook();
+    for (int i = 0; i < size; i++) {
+      book.addContact(new Contact.Builder("Contact " + i)
+          .withphoneNumber(String.valueOf(2120000000L + i))
+          .withEmail("contact" + i + "@nyu.edu")
+          .withAddress(i + " Broadway, New York")
+          .withNote("Note " + i)
+          .build());
+    }
+
+    Harness harness = new Harness(3, 5, 1000);
+    System.out.println(Harness.Result.header());
+    Harness.Result sequential = harness.measure("searchContacts", new Harness.Operation() {
+      @Override
+      public Object run() {
+        return book.searchContacts(KEYWORD);
+      }
+    });
+    System.out.println(sequential);
+    int processors = Runtime.getRuntime().availableProcessors();
+    for (int threads = 1; threads <= processors; threads = nextThreadCount(threads, processors)) {
+      final ForkJoinPool pool = new ForkJoinPool(threads);
+      Harness.Result parallel = harness.measure("searchContactsInParallel, " + threads
+          + " threads", new Harness.Operation() {
+            @Override
+            public Object run() {
+              return book.searchContactsInParallel(KEYWORD, pool);
+            }
+          });
+      pool.shutdown();
+      System.out.printf("%s  speedup %.2f%n", parallel,
+          parallel.operationsPerSecond() / sequential.operationsPerSecond());
+    }
+  }
+
+  private static int nextThreadCount(int threads, int processors) {
+    return (threads < processors && threads * 2 > processors) ? processors : threads * 2;
+  }
+}
@@ -0,0 +1,70 @@
+package edu.nyu.pqs.bench;
+
+import edu.nyu.pqs.ps1.AddressBook;
+import edu.nyu.pqs.ps1.Contact;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter for edu.nyu.pqs.ps1.AddressBook
+ * @author Anuj Bora
+ */
+class Ps1Book extends BookUnderTest {
+  private List<Contact> contacts = new ArrayList<Contact>();
+  private AddressBook book = new AddressBook();
+
+  @Override
+  String name() {
+    return "ps1";
+  }
+
+  @Override
+  void load(List<ContactGenerator.SyntheticContact> synthetic) {
+    contacts = new ArrayList<Contact>(synthetic.size());
+    for (ContactGenerator.SyntheticContact s : synthetic) {
+      contacts.add(new Contact.Builder(s.getName()).withphoneNumber(s.getPhoneNumber())
+          .withEmail(s.getEmail()).withAddress(s.getAddress()).withNote(s.getNote()).build());
+    }
+    book = (AddressBook) addAll();
+  }
+
+  @Override
+  Object addAll() {
+    AddressBook filled = new AddressBook();
+    for (Contact c : contacts) {
+      filled.addContact(c);
+    }
+    return filled;
+  }
+
+  @Override
+  Object removeAndAdd(int index) {
+    Contact c = contacts.get(index);
+    boolean removed = book.removeContact(c.getid());
+    book.addContact(c);
+    return removed;
+  }
+
+  @Override
+  List<?> searchEmail(String term) {
+    return book.searchContacts(term);
+  }
+
+  @Override
+  Object importFrom(String path) throws IOException {
+    AddressBook imported = new AddressBook();
+    if (!imported.importContacts(path)) {
+      throw new IOException("Import failed: " + path);
+    }
+    return imported;
+  }
+
+  @Override
+  void export(String path) throws IOException {
+    if (!book.exportContacts(path)) {
+      throw new IOException("Export failed: " + path);
+    }
+  }
+}
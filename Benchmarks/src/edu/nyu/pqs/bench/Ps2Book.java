@@ -0,0 +1,72 @@
+package edu.nyu.pqs.bench;
+
+import assignment1.addressbook.AddressBook;
+import assignment1.addressbook.Contact;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter for assignment1.addressbook.AddressBook of PS2/code_review. That
+ * implementation has no address field, so addresses are dropped.
+ * @author Anuj Bora
+ */
+class Ps2Book extends BookUnderTest {
+  private List<Contact> contacts = new ArrayList<Contact>();
+  private AddressBook book = new AddressBook();
+
+  @Override
+  String name() {
+    return "ps2";
+  }
+
+  @Override
+  void load(List<ContactGenerator.SyntheticContact> synthetic) {
+    contacts = new ArrayList<Contact>(synthetic.size());
+    for (ContactGenerator.SyntheticContact s : synthetic) {
+      contacts.add(new Contact.Builder().setName(s.getName())
+          .setPhoneNumber(s.getPhoneNumber()).setEmailAddress(s.getEmail())
+          .notes(s.getNote()).build());
+    }
+    book = (AddressBook) addAll();
+  }
+
+  @Override
+  Object addAll() {
+    AddressBook filled = new AddressBook();
+    for (Contact c : contacts) {
+      filled.add(c);
+    }
+    return filled;
+  }
+
+  @Override
+  Object removeAndAdd(int index) {
+    Contact c = contacts.get(index);
+    boolean removed = book.remove(c);
+    book.add(c);
+    return removed;
+  }
+
+  @Override
+  List<?> searchEmail(String term) {
+    return book.search(term);
+  }
+
+  @Override
+  Object importFrom(String path) throws IOException {
+    AddressBook imported = new AddressBook();
+    if (!imported.importContact(path)) {
+      throw new IOException("Import failed: " + path);
+    }
+    return imported;
+  }
+
+  @Override
+  void export(String path) throws IOException {
+    if (!book.exportContacts(path)) {
+      throw new IOException("Export failed: " + path);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package edu.nyu.pqs.bench;
+
+import addressbook.AddressBook;
+import addressbook.Contact;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter for addressbook.AddressBook of PS3
+ * @author Anuj Bora
+ */
+class Ps3Book extends BookUnderTest {
+  private List<Contact> contacts = new ArrayList<Contact>();
+  private AddressBook book = new AddressBook();
+
+  @Override
+  String name() {
+    return "ps3";
+  }
+
+  @Override
+  void load(List<ContactGenerator.SyntheticContact> synthetic) {
+    contacts = new ArrayList<Contact>(synthetic.size());
+    for (ContactGenerator.SyntheticContact s : synthetic) {
+      contacts.add(new Contact.Builder().withName(s.getName())
+          .withPhoneNumber(s.getPhoneNumber()).withEmail(s.getEmail())
+          .withAddress(s.getAddress()).withNote(s.getNote()).build());
+    }
+    book = (AddressBook) addAll();
+  }
+
+  @Override
+  Object addAll() {
+    AddressBook filled = new AddressBook();
+    for (Contact c : contacts) {
+      filled.addContact(c);
+    }
+    return filled;
+  }
+
+  @Override
+  Object removeAndAdd(int index) {
+    Contact c = contacts.get(index);
+    boolean removed = book.removeContact(c);
+    book.addContact(c);
+    return removed;
+  }
+
+  @Override
+  List<?> searchEmail(String term) {
+    return book.search(AddressBook.ContactAttribute.EMAIL, term);
+  }
+
+  @Override
+  Object importFrom(String path) throws IOException {
+    return new AddressBook(path);
+  }
+
+  @Override
+  void export(String path) throws IOException {
+    book.save(path);
+  }
+}
@@ -0,0 +1,66 @@
+package edu.nyu.pqs.bench;
+
+import edu.nyu.pqs.ps1.AddressBook;
+import edu.nyu.pqs.ps1.Contact;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the garbage created by a full scan of edu.nyu.pqs.ps1.AddressBook
+ * using the cached lowercased search keys of contacts against a scan which
+ * lowercases the raw data of every contact on every query, as searchContacts
+ * used to. The keyword doesn't match any contact, so the result list doesn't
+ * contribute to the allocations.
+ * Usage: SearchAllocationBenchmark [number of contacts]
+ * @author Anuj Bora
+ */
+public class SearchAllocationBenchmark {
+  private static final int DEFAULT_CONTACTS = 100000;
+  private static final String MISSING_KEYWORD = "no such contact";
+
+  public static void main(String[] args) throws Exception {
+    int size = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_CONTACTS;
+    final AddressBook book = new AddressBook();
+    final List<Contact> contacts = new ArrayList<Contact>(size);
+    for (int i = 0; i < size; i++) {
+      Contact c = new Contact.Builder("Contact " + i)
+          .withphoneNumber(String.valueOf(2120000000L + i))
+          .withEmail("contact" + i + "@nyu.edu")
+          .withAddress(i + " Broadway, New York")
+          .withNote("Note " + i)
+          .build();
+      contacts.add(c);
+      book.addContact(c);
+    }
+
+    Harness harness = new Harness(3, 5, 1000);
+    System.out.println(Harness.Result.header());
+    Harness.Result uncached = harness.measure("scan, lowercase per contact",
+        new Harness.Operation() {
+          @Override
+          public Object run() {
+            List<Contact> matched = new ArrayList<Contact>();
+            String keyword = MISSING_KEYWORD.toLowerCase();
+            for (Contact c : contacts) {
+              if (c.rawData().toLowerCase().contains(keyword)) {
+                matched.add(c);
+              }
+            }
+            return matched;
+          }
+        });
+    System.out.println(uncached);
+    Harness.Result cached = harness.measure("AddressBook.searchContacts, cached keys",
+        new Harness.Operation() {
+          @Override
+          public Object run() {
+            return book.searchContacts(MISSING_KEYWORD);
+          }
+        });
+    System.out.println(cached);
+
+    System.out.printf("Bytes per scanned contact: %.2f uncached, %.2f cached%n",
+        uncached.bytesPerOperation() / size, cached.bytesPerOperation() / size);
+  }
+}
@@ -1,14 +1,21 @@
 package edu.nyu.pqs.ps1;
 
-import com.google.gson.Gson;
-
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 /**
  * Library for implementing Address Book. Users of the library can : 
@@ -23,90 +30,369 @@ import java.util.UUID;
  * @author Anuj Bora
  */
 public class AddressBook {
+  private static final int INITIAL_FILTER_CAPACITY = 1024;
+  /*
+   * Contacts in insertion order. Removed contacts leave a null tombstone
+   * behind so that the slots of the remaining contacts stay valid; the
+   * tombstones are compacted once they make up half of the list
+   */
   private List<Contact> contacts;
+  /*
+   * Primary index mapping the UUID of every contact to its slot in contacts.
+   * Address Books opened from a snapshot build it on first use, see slots()
+   */
+  private Map<UUID, Integer> slots;
+  private int tombstones = 0;
+  /*
+   * Number of compactions so far. Slots remembered by search cursors are only
+   * valid while it doesn't change
+   */
+  private int compactions = 0;
+  /*
+   * Optional trigram index used by searchContacts. It is null when the
+   * Address Book was created without a search index
+   */
+  private final TrigramIndex searchIndex;
+  /*
+   * Index over phone number digits, built on the first phone search and
+   * maintained from then on, see phoneIndex()
+   */
+  private PhoneIndex phoneIndex = null;
+  /*
+   * BK-tree over lowercased names, built on the first fuzzy name search and
+   * maintained from then on, see nameIndex()
+   */
+  private BkTree nameIndex = null;
+  /*
+   * Contacts sorted by lowercased name, built on the first autocompletion,
+   * range query or ordered iteration and maintained from then on, see
+   * sortedNameIndex()
+   */
+  private SortedNameIndex sortedNameIndex = null;
+  /*
+   * Bloom filters over the phone number digits and the lowercased emails of
+   * the contacts, letting exact lookups reject absent values without a scan.
+   * Values of removed contacts stay in the filters until they are rebuilt by
+   * compact() or because they outgrew their capacity. Address Books opened
+   * from a snapshot build them on the first lookup, see phoneFilter()
+   */
+  private BloomFilter phoneFilter;
+  private BloomFilter emailFilter;
+  /*
+   * State of the last export used by exportContactsIncrementally. Contacts
+   * added since the last export are kept in insertion order in addedSinceExport
+   */
+  private Path lastExportPath = null;
+  private long lastExportSize = -1L;
+  private final Map<UUID, Contact> addedSinceExport = new LinkedHashMap<UUID, Contact>();
+  private boolean removedSinceExport = false;
 	
   public AddressBook() {
-    contacts = new ArrayList<Contact>();	
+    this(false);
+  }
+
+  /**
+   * Creates an empty Address Book, optionally maintaining a trigram index
+   * which speeds up searchContacts for keywords of three or more characters.
+   * The index is kept up to date by addContact, removeContact and
+   * importContacts at the cost of extra memory and slower insertions.
+   * @param searchIndexEnabled boolean true if the search index should be maintained
+   */
+  public AddressBook(boolean searchIndexEnabled) {
+    contacts = new ArrayList<Contact>();
+    slots = new HashMap<UUID, Integer>();
+    searchIndex = searchIndexEnabled ? new TrigramIndex() : null;
+    phoneFilter = new BloomFilter(INITIAL_FILTER_CAPACITY);
+    emailFilter = new BloomFilter(INITIAL_FILTER_CAPACITY);
   }
 	
   /**
    * Adds a Contact to the Address Book. Returns false for a null argument
+   * or if a contact with the same UUID is already present in the Address Book
    * @param contact contact to be added in Address Book
    * @return boolean true if contact successfully added to Address Book
    */
   public boolean addContact(Contact contact) {
-    if (contact == null) {
+    if (contact == null || slots().containsKey(contact.getid())) {
       return false;
     }
-    return contacts.add(contact);
+    slots().put(contact.getid(), contacts.size());
+    if (lastExportPath != null) {
+      addedSinceExport.put(contact.getid(), contact);
+    }
+    if (searchIndex != null) {
+      searchIndex.add(contact);
+    }
+    if (phoneIndex != null) {
+      phoneIndex.add(contact);
+    }
+    if (nameIndex != null) {
+      nameIndex.add(contact);
+    }
+    if (sortedNameIndex != null) {
+      sortedNameIndex.add(contact);
+    }
+    contacts.add(contact);
+    if (phoneFilter != null) {
+      putIntoFilters(contact);
+      if (phoneFilter.isFull() || emailFilter.isFull()) {
+        rebuildFilters();
+      }
+    }
+    return true;
+  }
+	
+  /**
+   * Adds all contacts to the Address Book in iteration order, skipping null
+   * elements and contacts whose UUID is already present, like addContact.
+   * The contact list is grown once for the whole batch and secondary indexes
+   * are updated in one bulk pass after all contacts have been appended, so
+   * adding many contacts is considerably faster than calling addContact for
+   * each. The contacts are searchable as soon as addAll returns.
+   * @param newContacts Collection of contacts to be added
+   * @return number of contacts added
+   */
+  public int addAll(Collection<Contact> newContacts) {
+    if (contacts instanceof ArrayList) {
+      ((ArrayList<Contact>) contacts).ensureCapacity(contacts.size() + newContacts.size());
+    }
+    Map<UUID, Integer> index = slots();
+    List<Contact> added = new ArrayList<Contact>(newContacts.size());
+    for (Contact c : newContacts) {
+      if (c == null || index.containsKey(c.getid())) {
+        continue;
+      }
+      index.put(c.getid(), contacts.size());
+      contacts.add(c);
+      added.add(c);
+      if (phoneFilter != null) {
+        putIntoFilters(c);
+      }
+      if (lastExportPath != null) {
+        addedSinceExport.put(c.getid(), c);
+      }
+    }
+    if (searchIndex != null) {
+      searchIndex.addAll(added);
+    }
+    if (phoneIndex != null) {
+      // Sorts the new phone numbers once and merges them into the index
+      phoneIndex.addAll(added);
+    }
+    if (nameIndex != null) {
+      nameIndex.addAll(added);
+    }
+    if (sortedNameIndex != null) {
+      sortedNameIndex.addAll(added);
+    }
+    if (phoneFilter != null && (phoneFilter.isFull() || emailFilter.isFull())) {
+      rebuildFilters();
+    }
+    return added.size();
   }
 	
   /**
    * Removes contact from the Address Book of the given UUID
    * boolean false will be returned if either Address book is empty or
-   * contact isn't found matching to given UUID
+   * contact isn't found matching to given UUID.
+   * The contact is found through the UUID index and its slot is marked as
+   * removed, so removal takes constant amortized time.
    * @param id the UUID of the contact to be deleted
    * @return boolean true if contact of given UUID found and deleted
    */
   public boolean removeContact(UUID id) {
-    for (int i = 0; i < contacts.size(); i++) {
-      if (contacts.get(i).getid().equals(id)) {
-        contacts.remove(i);
-        return true;
-      }
+    Integer slot = slots().remove(id);
+    if (slot == null) {
+      return false;
+    }
+    Contact removed = contacts.set(slot, null);
+    tombstones++;
+    // Removing an already exported contact can't be expressed by appending
+    if (addedSinceExport.remove(id) == null) {
+      removedSinceExport = true;
+    }
+    if (searchIndex != null) {
+      searchIndex.remove(removed);
+    }
+    if (phoneIndex != null) {
+      phoneIndex.remove(removed);
+    }
+    if (nameIndex != null) {
+      nameIndex.remove(removed);
+    }
+    if (sortedNameIndex != null) {
+      sortedNameIndex.remove(removed);
     }
-    return false;
+    // Compact once half of the slots are tombstones
+    if (tombstones * 2 > contacts.size()) {
+      compact();
+    }
+    return true;
+  }
+
+  /**
+   * Returns the contact of the given UUID
+   * @param id the UUID of the contact
+   * @return Contact having the given UUID, null if no such contact exists
+   */
+  public Contact getContact(UUID id) {
+    Integer slot = slots().get(id);
+    return (slot == null) ? null : contacts.get(slot);
   }
 	
   /**
-   * Imports contacts from an external JSON file. The new contacts will be added to 
-   * existing Address Book maintaining previous contacts in the Address Book.
+   * Imports contacts from an external UTF-8 encoded JSON file. The new contacts will
+   * be added to existing Address Book maintaining previous contacts in the Address Book.
+   * Files whose name ends with .gz or .gzip are read as gzip, files ending
+   * with .deflate or .zz as zlib compressed, see exportContacts.
    * boolean false will be returned in case of exception in handling file
-   * so that the exception can be handled at client side
+   * so that the exception can be handled at client side.
+   * Contacts whose UUID is already present in the Address Book are skipped.
    * @param path String The system-dependent filename.
    * @return boolean true if contacts successfully imported
    */
   public boolean importContacts(String path) {
-    Gson gson = new Gson();
     try {
-    	BufferedReader br = new BufferedReader(new FileReader(path));
-      String line;
-      // Read JSON file line by line and convert each line's data to Contact object
-      while ((line = br.readLine()) != null) {
-        Contact c = gson.fromJson(line, Contact.class);
-        contacts.add(c);
-      }
+      addAll(ContactFiles.read(Paths.get(path)));
     } catch (IOException FileAccessFailed) {
       return false;
     }
     return true;
   }
+
+  /**
+   * Imports contacts from an external UTF-8 encoded JSON file having one contact
+   * per line, as written by exportContacts, using all available processors.
+   * The file is split into ranges of whole lines which are parsed in parallel
+   * on the common fork-join pool. Contacts are added to the Address Book in
+   * the same order as they appear in the file, skipping contacts whose UUID is
+   * already present. Compressed files can't be split and are parsed sequentially.
+   * null will be returned in case of exception in handling file so that the
+   * exception can be handled at client side
+   * @param path String The system-dependent filename.
+   * @return ImportStatistics holding the throughput of the import, null if the
+   *   file couldn't be read
+   */
+  public ImportStatistics importContactsInParallel(String path) {
+    return importContactsInParallel(path, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Same as importContactsInParallel(String) but parses the file on the given pool
+   * @param path String The system-dependent filename.
+   * @param pool ForkJoinPool on which the file is parsed
+   * @return ImportStatistics holding the throughput of the import, null if the
+   *   file couldn't be read
+   */
+  public ImportStatistics importContactsInParallel(String path, ForkJoinPool pool) {
+    long start = System.nanoTime();
+    List<Contact> parsed;
+    long bytes;
+    try {
+      parsed = new ParallelImporter(pool).parse(Paths.get(path));
+      bytes = Files.size(Paths.get(path));
+    } catch (IOException FileAccessFailed) {
+      return null;
+    }
+    addAll(parsed);
+    return new ImportStatistics(parsed.size(), bytes, System.nanoTime() - start);
+  }
 	
   /**
    * Exports contacts of the Address Book in JSON using GSON library.
    * The path provided in argument should include name of the file.
    * If the file of the given name doesn't exists, it will be created.
+   * The file is UTF-8 encoded and holds one contact per line. Contacts are
+   * written to a temporary file which is synced to disk and then renamed to the
+   * given path, so a failed export leaves the previous file untouched.
+   * The file is gzip compressed if its name ends with .gz or .gzip and zlib
+   * compressed if it ends with .deflate or .zz. Compression runs on a
+   * separate thread, overlapping with the JSON encoding of the contacts.
    * boolean false will be returned in case of exception so that the 
    * exception can be handled on client side.
    * @param path String The system-dependent filename.
    * @return boolean true if contacts successfully exported
    */
   public boolean exportContacts(String path) {
-    Gson gson = new Gson();    
+    Path target = Paths.get(path).toAbsolutePath().normalize();
     try {
-    	FileWriter writer = new FileWriter(path);
-      for (Contact c : contacts) {
-        // Output one object per line in the external file
-      	gson.toJson(c, writer);
-        writer.write("\n");
+      ContactFiles.writeAtomically(contacts, target);
+      exported(target);
+    } catch (IOException FileAccessFailed) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Exports contacts of the Address Book like exportContacts, but only appends
+   * the contacts added since the last export if the previous export was written
+   * to the same path. The whole Address Book is exported instead if there was no
+   * previous export to this path, the file was changed since, or contacts
+   * were removed since the last export. Contacts appended to a gzip file form
+   * a new gzip member; deflate files can't be appended to and are always
+   * exported as a whole.
+   * boolean false will be returned in case of exception so that the
+   * exception can be handled on client side.
+   * @param path String The system-dependent filename.
+   * @return boolean true if contacts successfully exported
+   */
+  public boolean exportContactsIncrementally(String path) {
+    Path target = Paths.get(path).toAbsolutePath().normalize();
+    try {
+      if (!target.equals(lastExportPath) || removedSinceExport
+          || !Compression.of(target).appendable()
+          || !Files.exists(target) || Files.size(target) != lastExportSize) {
+        return exportContacts(path);
       }
-      writer.close();
+      ContactFiles.append(addedSinceExport.values(), target);
+      exported(target);
     } catch (IOException FileAccessFailed) {
       return false;
     }
     return true;
   }
 	
+  /**
+   * Saves the Address Book to a compact binary snapshot which can be opened
+   * much faster than a JSON export, see openSnapshot. The snapshot is written
+   * to a temporary file which is synced to disk and then renamed to the given
+   * path.
+   * boolean false will be returned in case of exception so that the
+   * exception can be handled on client side.
+   * @param path Path of the snapshot file
+   * @return boolean true if the snapshot was successfully saved
+   */
+  public boolean saveSnapshot(Path path) {
+    try {
+      ContactSnapshot.save(contacts, path);
+    } catch (IOException FileAccessFailed) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Opens an Address Book from a snapshot written by saveSnapshot. The file is
+   * memory mapped and only its header is read, so no contact is decoded while
+   * opening. Opening allocates one reference and one flag per contact, which
+   * later hold the decoded contacts, but no objects per contact. Contacts are
+   * decoded from the mapping when they are first accessed. The UUID index needed by
+   * addContact, removeContact and getContact is built on the first call to
+   * any of them. The returned Address Book has no search index.
+   * @param path Path of the snapshot file
+   * @return AddressBook holding the contacts of the snapshot
+   * @throws IOException if the file can't be read or isn't a snapshot
+   */
+  public static AddressBook openSnapshot(Path path) throws IOException {
+    AddressBook book = new AddressBook();
+    book.contacts = ContactSnapshot.open(path);
+    book.slots = null;
+    book.phoneFilter = null;
+    book.emailFilter = null;
+    return book;
+  }
+	
   /**
    * Returns list of contacts that matches provided keyword. 
    * Matching is case-insensitive.
@@ -119,17 +405,519 @@ public class AddressBook {
   public List<Contact> searchContacts(String keyword) {
     List<Contact> matchedContacts = new ArrayList<Contact>();
     keyword = keyword.toLowerCase();
+    // Only candidates sharing every trigram of the keyword need to be verified
+    List<Contact> candidates = (searchIndex == null) ? null
+        : inSlotOrder(searchIndex.candidates(keyword));
+    for (Contact c : (candidates == null) ? contacts : candidates) {
+      // Compare the cached lowercased raw data with the keyword
+      if (c != null && c.matches(keyword)) {
+        matchedContacts.add(c);
+      }
+    }
+    return matchedContacts;
+  }
+
+  /**
+   * Returns contacts matching the keyword like searchContacts(String), but
+   * scans the contacts on all cores of the common fork-join pool. Results are
+   * in insertion order, exactly as returned by searchContacts(String). Address
+   * Books with fewer than 16,384 contacts, or keywords narrowing the search
+   * index down to that many candidates, are scanned on the calling thread.
+   * This pays off for keywords which can't use the search index, e.g. shorter
+   * ones, or Address Books created without it.
+   * The Address Book must not be modified during the search.
+   * @param keyword String the keyword to search
+   * @return List containing matched contacts. Returns Empty list if zero contacts matched.
+   */
+  public List<Contact> searchContactsInParallel(String keyword) {
+    return searchContactsInParallel(keyword, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Same as searchContactsInParallel(String) but scans the contacts on the given pool
+   * @param keyword String the keyword to search
+   * @param pool ForkJoinPool on which the contacts are scanned
+   * @return List containing matched contacts. Returns Empty list if zero contacts matched.
+   */
+  public List<Contact> searchContactsInParallel(String keyword, ForkJoinPool pool) {
+    keyword = keyword.toLowerCase();
+    List<Contact> candidates = (searchIndex == null) ? null
+        : inSlotOrder(searchIndex.candidates(keyword));
+    return new ParallelSearch(pool).search((candidates == null) ? contacts : candidates,
+        keyword);
+  }
+
+  /**
+   * Returns contacts matching the keyword like searchContacts(String), but
+   * evaluated lazily : contacts are only matched as the stream is consumed, so
+   * short-circuiting operations such as limit, findFirst or anyMatch stop the
+   * scan early. Contacts are returned in insertion order.
+   * The Address Book must not be modified before the stream has been consumed.
+   * @param keyword String the keyword to search
+   * @return Stream of matched contacts
+   */
+  public Stream<Contact> searchContactsLazily(String keyword) {
+    final String lowerKeyword = keyword.toLowerCase();
+    List<Contact> candidates = (searchIndex == null) ? null
+        : inSlotOrder(searchIndex.candidates(lowerKeyword));
+    return ((candidates == null) ? contacts : candidates).stream()
+        .filter(c -> c != null && c.matches(lowerKeyword));
+  }
+
+  /**
+   * Returns the first page of contacts matching the keyword like
+   * searchContacts(String). The scan stops as soon as the page is full; the
+   * cursor of the returned page continues it from there.
+   * @param keyword String the keyword to search
+   * @param pageSize maximum number of contacts in the page
+   * @return SearchPage with up to pageSize contacts in insertion order
+   * @throws IllegalArgumentException if pageSize isn't positive
+   */
+  public SearchPage searchContacts(String keyword, int pageSize) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive");
+    }
+    return page(keyword.toLowerCase(), 0, pageSize, null, 0);
+  }
+
+  /**
+   * Returns the next page of a search started by searchContacts(String, int).
+   * The scan resumes right after the last contact of the previous page, so
+   * contacts before it aren't matched again. Contacts added meanwhile appear
+   * in later pages; contacts removed meanwhile are skipped.
+   * @param cursor Cursor of the previous page, see SearchPage.getNextCursor
+   * @param pageSize maximum number of contacts in the page
+   * @return SearchPage with up to pageSize contacts in insertion order
+   * @throws IllegalArgumentException if pageSize isn't positive or the cursor
+   *   belongs to another Address Book
+   * @throws ConcurrentModificationException if the last contact of the previous
+   *   page has been removed and the Address Book compacted since, which leaves
+   *   no position to resume from
+   */
+  public SearchPage searchContacts(SearchPage.Cursor cursor, int pageSize) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive");
+    }
+    if (cursor.book != this) {
+      throw new IllegalArgumentException("Cursor belongs to another Address Book");
+    }
+    if (cursor.compactions != compactions) {
+      // Slots have been reassigned, find the last returned contact again
+      Integer slot = slots().get(cursor.lastId);
+      if (slot == null) {
+        throw new ConcurrentModificationException(
+            "Address Book was compacted after the cursor's contact was removed");
+      }
+      return page(cursor.keyword, slot + 1, pageSize, null, 0);
+    }
+    return page(cursor.keyword, cursor.slot + 1, pageSize, cursor.candidates,
+        cursor.candidatesEnd);
+  }
+
+  /**
+   * Collects up to pageSize contacts matching lowerKeyword from slot start on.
+   * candidates are the sorted slots of the index candidates taken when
+   * contacts had candidatesEnd slots, or null to look them up now. Slots from
+   * candidatesEnd on were added since and are scanned.
+   */
+  private SearchPage page(String lowerKeyword, int start, int pageSize, int[] candidates,
+      int candidatesEnd) {
+    if (candidates == null && searchIndex != null) {
+      candidates = candidateSlots(searchIndex.candidates(lowerKeyword));
+      candidatesEnd = contacts.size();
+    }
+    List<Contact> matched = new ArrayList<Contact>();
+    int lastSlot = -1;
+    int scanFrom = start;
+    if (candidates != null) {
+      int first = Arrays.binarySearch(candidates, start);
+      for (int i = (first < 0) ? -first - 1 : first;
+          i < candidates.length && matched.size() < pageSize; i++) {
+        // Candidates removed since the lookup leave a tombstone
+        Contact c = contacts.get(candidates[i]);
+        if (c != null && c.matches(lowerKeyword)) {
+          matched.add(c);
+          lastSlot = candidates[i];
+        }
+      }
+      scanFrom = Math.max(start, candidatesEnd);
+    }
+    for (int slot = scanFrom; slot < contacts.size() && matched.size() < pageSize; slot++) {
+      Contact c = contacts.get(slot);
+      if (c != null && c.matches(lowerKeyword)) {
+        matched.add(c);
+        lastSlot = slot;
+      }
+    }
+    SearchPage.Cursor next = null;
+    if (matched.size() == pageSize) {
+      next = new SearchPage.Cursor(this, lowerKeyword, lastSlot,
+          matched.get(pageSize - 1).getid(), compactions, candidates, candidatesEnd);
+    }
+    return new SearchPage(matched, next);
+  }
+
+  /**
+   * Returns contacts whose phone number starts with the given prefix. Only the
+   * digits of the stored phone numbers and of the prefix are compared, so
+   * "+1 (212)" matches a contact stored with phone number 12125551234.
+   * The lookup is answered by a sorted index over the phone numbers which is
+   * built on the first phone search and kept up to date afterwards.
+   * @param prefix String the beginning of a phone number
+   * @return List containing matched contacts in insertion order. Returns Empty
+   *   list if zero contacts matched or prefix contains no digits.
+   */
+  public List<Contact> searchByPhonePrefix(String prefix) {
+    return inSlotOrder(phoneIndex().startingWith(prefix));
+  }
+
+  /**
+   * Returns contacts whose phone number contains the given part anywhere. Only
+   * the digits of the stored phone numbers and of the part are compared. Like
+   * searchByPhonePrefix, the lookup is answered by the phone index.
+   * @param part String part of a phone number
+   * @return List containing matched contacts in insertion order. Returns Empty
+   *   list if zero contacts matched or part contains no digits.
+   */
+  public List<Contact> searchByPhoneSubstring(String part) {
+    return inSlotOrder(phoneIndex().containing(part));
+  }
+
+  /**
+   * Returns the contacts whose phone number is exactly the given one. Only
+   * digits are compared, so "(212) 555-1234" finds 2125551234. A Bloom filter
+   * over the phone numbers of all contacts answers lookups of numbers which
+   * aren't in the Address Book without scanning the contacts.
+   * @param phoneNumber String the phone number to look up
+   * @return List containing matched contacts in insertion order. Returns Empty
+   *   list if zero contacts matched or phoneNumber contains no digits.
+   */
+  public List<Contact> searchByPhoneNumber(String phoneNumber) {
+    String digits = PhoneIndex.digitsOf(phoneNumber);
+    List<Contact> matchedContacts = new ArrayList<Contact>();
+    if (digits.isEmpty() || !phoneFilter().mightContain(digits)) {
+      return matchedContacts;
+    }
     for (Contact c : contacts) {
-      // Convert raw data to lower case and compare with the keyword
-      if (c.rawData().toLowerCase().contains(keyword)) {
+      if (c != null && hasDigits(c.getphoneNumber(), digits)) {
         matchedContacts.add(c);
       }
     }
+    if (matchedContacts.isEmpty()) {
+      phoneFilter.falsePositive();
+    }
     return matchedContacts;
   }
 
+  /**
+   * Returns the contacts whose email is exactly the given one, ignoring case
+   * and surrounding whitespace. Like searchByPhoneNumber, lookups of emails
+   * which aren't in the Address Book are answered by a Bloom filter.
+   * @param email String the email to look up
+   * @return List containing matched contacts in insertion order. Returns Empty
+   *   list if zero contacts matched or email is blank.
+   */
+  public List<Contact> searchByEmail(String email) {
+    String key = normalizedEmail(email);
+    List<Contact> matchedContacts = new ArrayList<Contact>();
+    if (key.isEmpty() || !emailFilter().mightContain(key)) {
+      return matchedContacts;
+    }
+    for (Contact c : contacts) {
+      if (c != null && key.equals(normalizedEmail(c.getEmail()))) {
+        matchedContacts.add(c);
+      }
+    }
+    if (matchedContacts.isEmpty()) {
+      emailFilter.falsePositive();
+    }
+    return matchedContacts;
+  }
+
+  /**
+   * Returns size and hit figures of the Bloom filter used by searchByPhoneNumber
+   * @return FilterStatistics of the phone number filter
+   */
+  public FilterStatistics getPhoneFilterStatistics() {
+    return phoneFilter().statistics();
+  }
+
+  /**
+   * Returns size and hit figures of the Bloom filter used by searchByEmail
+   * @return FilterStatistics of the email filter
+   */
+  public FilterStatistics getEmailFilterStatistics() {
+    return emailFilter().statistics();
+  }
+
+  private BloomFilter phoneFilter() {
+    if (phoneFilter == null) {
+      rebuildFilters();
+    }
+    return phoneFilter;
+  }
+
+  private BloomFilter emailFilter() {
+    if (emailFilter == null) {
+      rebuildFilters();
+    }
+    return emailFilter;
+  }
+
+  /**
+   * Replaces both Bloom filters by filters holding only the current contacts,
+   * sized for twice their number
+   */
+  private void rebuildFilters() {
+    int capacity = Math.max(INITIAL_FILTER_CAPACITY, 2 * (contacts.size() - tombstones));
+    phoneFilter = new BloomFilter(capacity, phoneFilter);
+    emailFilter = new BloomFilter(capacity, emailFilter);
+    for (Contact c : contacts) {
+      if (c != null) {
+        putIntoFilters(c);
+      }
+    }
+  }
+
+  private void putIntoFilters(Contact contact) {
+    String digits = PhoneIndex.digitsOf(contact.getphoneNumber());
+    if (!digits.isEmpty()) {
+      phoneFilter.put(digits);
+    }
+    String email = normalizedEmail(contact.getEmail());
+    if (!email.isEmpty()) {
+      emailFilter.put(email);
+    }
+  }
+
+  /**
+   * Returns whether the digits of number are exactly digits, without
+   * allocating the digit string of number
+   */
+  private static boolean hasDigits(String number, String digits) {
+    if (number == null) {
+      return false;
+    }
+    int matched = 0;
+    for (int i = 0; i < number.length(); i++) {
+      char ch = number.charAt(i);
+      if (ch >= '0' && ch <= '9') {
+        if (matched == digits.length() || digits.charAt(matched) != ch) {
+          return false;
+        }
+        matched++;
+      }
+    }
+    return matched == digits.length();
+  }
+
+  private static String normalizedEmail(String email) {
+    return (email == null) ? "" : email.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Returns the contacts whose name is closest to the given name, tolerating
+   * typos : "Jonh" finds "John". Names are compared case-insensitively by
+   * their Levenshtein distance, the number of inserted, deleted or replaced
+   * characters. The lookup is answered by a BK-tree over the names which is
+   * built on the first fuzzy search and kept up to date afterwards.
+   * @param name String the name to look up
+   * @param maxDistance greatest edit distance of a returned contact
+   * @param limit greatest number of returned contacts
+   * @return List of up to limit contacts within maxDistance, closest first and
+   *   contacts at the same distance in insertion order
+   * @throws IllegalArgumentException if maxDistance is negative or limit isn't positive
+   */
+  public List<Contact> searchBySimilarName(String name, int maxDistance, int limit) {
+    if (maxDistance < 0 || limit <= 0) {
+      throw new IllegalArgumentException("Invalid distance or limit");
+    }
+    List<Contact> closest = new ArrayList<Contact>();
+    for (List<Contact> sameDistance : nameIndex().within(name.toLowerCase(), maxDistance)) {
+      for (Contact c : inSlotOrder(sameDistance)) {
+        if (closest.size() == limit) {
+          return closest;
+        }
+        closest.add(c);
+      }
+    }
+    return closest;
+  }
+
+  /**
+   * Returns the contacts whose name starts with prefix, ignoring case, in
+   * alphabetical order, e.g. autocompleteName("Ma", 10) for a type-ahead box.
+   * Contacts of equal names are returned in insertion order. Names are kept
+   * in a sorted index, so the cost depends on the number of returned contacts
+   * rather than on the size of the Address Book.
+   * @param prefix String the beginning of the name
+   * @param limit greatest number of returned contacts
+   * @return List of up to limit contacts, empty if no name starts with prefix
+   * @throws IllegalArgumentException if limit isn't positive
+   */
+  public List<Contact> autocompleteName(String prefix, int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Invalid limit");
+    }
+    return sortedNameIndex().startingWith(prefix.toLowerCase(), limit);
+  }
+
+  /**
+   * Returns the contacts whose name lies between from, inclusive, and to,
+   * exclusive, in alphabetical order. Names are compared ignoring case, e.g.
+   * searchByNameRange("a", "n") returns the names from A to M.
+   * @param from String the lower bound of the names
+   * @param to String the upper bound of the names
+   * @return List of contacts in the range, empty if there are none
+   * @throws IllegalArgumentException if from comes after to
+   */
+  public List<Contact> searchByNameRange(String from, String to) {
+    return sortedNameIndex().between(from.toLowerCase(), to.toLowerCase());
+  }
+
+  /**
+   * Returns all contacts in alphabetical order of their names, ignoring case.
+   * The contacts are read from the sorted name index, nothing is copied or
+   * sorted. The Address Book must not be modified while iterating.
+   * @return Iterable over all contacts, contacts of equal names in insertion order
+   */
+  public Iterable<Contact> contactsByName() {
+    return sortedNameIndex();
+  }
+
+  /**
+   * Returns the sorted name index, building it from all contacts on first use
+   * @return SortedNameIndex over all contacts
+   */
+  private SortedNameIndex sortedNameIndex() {
+    if (sortedNameIndex == null) {
+      SortedNameIndex index = new SortedNameIndex();
+      index.addAll(contacts);
+      sortedNameIndex = index;
+    }
+    return sortedNameIndex;
+  }
+
+  /**
+   * Returns the name index, building it from all contacts on first use
+   * @return BkTree over all contacts
+   */
+  private BkTree nameIndex() {
+    if (nameIndex == null) {
+      BkTree index = new BkTree();
+      index.addAll(contacts);
+      nameIndex = index;
+    }
+    return nameIndex;
+  }
+
+  /**
+   * Returns the phone index, building it from all contacts on first use
+   * @return PhoneIndex over all contacts
+   */
+  private PhoneIndex phoneIndex() {
+    if (phoneIndex == null) {
+      PhoneIndex index = new PhoneIndex();
+      index.addAll(contacts);
+      phoneIndex = index;
+    }
+    return phoneIndex;
+  }
+
+  /**
+   * Returns the UUID index, building it first if the Address Book was opened
+   * from a snapshot. UUIDs are read from the snapshot's offset table, so
+   * building the index doesn't decode any contacts.
+   * @return Map from UUID to slot
+   */
+  private Map<UUID, Integer> slots() {
+    if (slots == null) {
+      Map<UUID, Integer> index = new HashMap<UUID, Integer>();
+      ContactSnapshot.LazyContactList lazy = (ContactSnapshot.LazyContactList) contacts;
+      for (int i = 0; i < lazy.size(); i++) {
+        index.put(lazy.id(i), i);
+      }
+      slots = index;
+    }
+    return slots;
+  }
+
+  /**
+   * Records that the whole Address Book is now stored at target
+   * @param target Path of the exported file
+   * @throws IOException if the size of the file can't be read
+   */
+  private void exported(Path target) throws IOException {
+    lastExportPath = target;
+    lastExportSize = Files.size(target);
+    addedSinceExport.clear();
+    removedSinceExport = false;
+  }
+
+  /**
+   * Sorts contacts by their slot, i.e. in the order in which they were added
+   * @param unordered contacts stored in the Address Book, may be null
+   * @return List of the same contacts in insertion order, null for a null argument
+   */
+  private List<Contact> inSlotOrder(List<Contact> unordered) {
+    if (unordered == null) {
+      return null;
+    }
+    int[] order = candidateSlots(unordered);
+    List<Contact> ordered = new ArrayList<Contact>(order.length);
+    for (int slot : order) {
+      ordered.add(contacts.get(slot));
+    }
+    return ordered;
+  }
+
+  /**
+   * Returns the slots of contacts in ascending order
+   * @param unordered contacts stored in the Address Book, may be null
+   * @return sorted slots of the contacts, null for a null argument
+   */
+  private int[] candidateSlots(List<Contact> unordered) {
+    if (unordered == null) {
+      return null;
+    }
+    int[] order = new int[unordered.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = slots().get(unordered.get(i).getid());
+    }
+    Arrays.sort(order);
+    return order;
+  }
+
+  /**
+   * Drops all tombstones from contacts and reassigns the slots of the
+   * remaining contacts in the UUID index
+   */
+  private void compact() {
+    List<Contact> live = new ArrayList<Contact>(contacts.size() - tombstones);
+    slots = new HashMap<UUID, Integer>();
+    for (Contact c : contacts) {
+      if (c != null) {
+        slots.put(c.getid(), live.size());
+        live.add(c);
+      }
+    }
+    contacts = live;
+    tombstones = 0;
+    compactions++;
+    if (phoneFilter != null) {
+      // Drops the values of the removed contacts from the filters
+      rebuildFilters();
+    }
+  }
+
   @Override
   public String toString() {
-    return "AddressBook [contacts=" + contacts + "]";
+    List<Contact> live = new ArrayList<Contact>(contacts.size() - tombstones);
+    for (Contact c : contacts) {
+      if (c != null) {
+        live.add(c);
+      }
+    }
+    return "AddressBook [contacts=" + live + "]";
   }
 }
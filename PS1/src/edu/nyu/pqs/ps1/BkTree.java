@@ -0,0 +1,182 @@
+package edu.nyu.pqs.ps1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * BK-tree over the lowercased names of contacts, answering which names lie
+ * within a given Levenshtein distance of a query. Every node holds one
+ * distinct name with the contacts carrying it; a child is stored under its
+ * distance to the parent. By the triangle inequality, names within distance
+ * max of the query can only be found under children whose distance to the
+ * node lies within max of the query's distance to the node, so most of the
+ * tree is never visited.
+ * Removing a contact only drops it from its node. The node keeps routing
+ * lookups and is reused when the name is added again.
+ * Contacts are tracked by identity.
+ * @author Anuj Bora
+ */
+class BkTree {
+  private Node root = null;
+  /*
+   * Length of the longest name ever added. Removals don't lower it, it only
+   * serves as an upper bound of the distances in within
+   */
+  private int longestName = 0;
+
+  /**
+   * Adds contact under its lowercased name. Contacts without a name aren't indexed
+   * @param contact Contact to be indexed
+   */
+  void add(Contact contact) {
+    if (contact.getName() == null) {
+      return;
+    }
+    String name = contact.getName().toLowerCase();
+    longestName = Math.max(longestName, name.length());
+    if (root == null) {
+      root = new Node(name);
+    }
+    Node node = root;
+    int distance;
+    while ((distance = distance(name, node.name)) != 0) {
+      Node child = node.child(distance);
+      if (child == null) {
+        child = new Node(name);
+        node.setChild(distance, child);
+      }
+      node = child;
+    }
+    node.contacts.add(contact);
+  }
+
+  /**
+   * Adds all contacts
+   * @param contacts contacts to be indexed, null elements are skipped
+   */
+  void addAll(Collection<Contact> contacts) {
+    for (Contact c : contacts) {
+      if (c != null) {
+        add(c);
+      }
+    }
+  }
+
+  /**
+   * Removes contact from the index
+   * @param contact Contact to be removed from the index
+   */
+  void remove(Contact contact) {
+    if (contact.getName() == null) {
+      return;
+    }
+    String name = contact.getName().toLowerCase();
+    Node node = root;
+    while (node != null) {
+      int distance = distance(name, node.name);
+      if (distance == 0) {
+        for (int i = 0; i < node.contacts.size(); i++) {
+          if (node.contacts.get(i) == contact) {
+            node.contacts.remove(i);
+            return;
+          }
+        }
+        return;
+      }
+      node = node.child(distance);
+    }
+  }
+
+  /**
+   * Returns the contacts whose lowercased name lies within maxDistance of query,
+   * grouped by distance. No two names are further apart than the sum of their
+   * lengths, so maxDistance is first lowered to that bound, which keeps huge
+   * values from allocating or overflowing.
+   * @param query lowercased name
+   * @param maxDistance greatest edit distance of a match, not negative
+   * @return List whose element d holds the contacts at distance d, d = 0 up to
+   *   maxDistance or the bound, whichever is smaller
+   */
+  List<List<Contact>> within(String query, int maxDistance) {
+    int max = (int) Math.min(maxDistance, (long) longestName + query.length());
+    List<List<Contact>> byDistance = new ArrayList<List<Contact>>(max + 1);
+    for (int d = 0; d <= max; d++) {
+      byDistance.add(new ArrayList<Contact>());
+    }
+    if (root == null) {
+      return byDistance;
+    }
+    List<Node> pending = new ArrayList<Node>();
+    pending.add(root);
+    while (!pending.isEmpty()) {
+      Node node = pending.remove(pending.size() - 1);
+      int distance = distance(query, node.name);
+      if (distance <= max) {
+        byDistance.get(distance).addAll(node.contacts);
+      }
+      int last = Math.min(distance + max, node.children.length - 1);
+      for (int d = Math.max(1, distance - max); d <= last; d++) {
+        if (node.children[d] != null) {
+          pending.add(node.children[d]);
+        }
+      }
+    }
+    return byDistance;
+  }
+
+  /**
+   * Returns the Levenshtein distance of a and b, i.e. the least number of
+   * inserted, deleted or substituted characters turning a into b
+   */
+  static int distance(String a, String b) {
+    if (a.length() < b.length()) {
+      String swap = a;
+      a = b;
+      b = swap;
+    }
+    // Two rows of the dynamic programming table over the shorter string
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      char ch = a.charAt(i - 1);
+      for (int j = 1; j <= b.length(); j++) {
+        int substitution = previous[j - 1] + ((ch == b.charAt(j - 1)) ? 0 : 1);
+        current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+
+  private static class Node {
+    private final String name;
+    private final List<Contact> contacts = new ArrayList<Contact>(1);
+    /*
+     * Children indexed by their distance to this node, null where absent
+     */
+    private Node[] children = new Node[0];
+
+    Node(String name) {
+      this.name = name;
+    }
+
+    Node child(int distance) {
+      return (distance < children.length) ? children[distance] : null;
+    }
+
+    void setChild(int distance, Node child) {
+      if (distance >= children.length) {
+        children = Arrays.copyOf(children, distance + 1);
+      }
+      children[distance] = child;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package edu.nyu.pqs.ps1;
+
+/**
+ * Bloom filter over strings, telling for sure that a string was never added.
+ * Every string sets k bits of a bit array chosen by double hashing of a 64 bit
+ * FNV-1a hash; a string whose bits aren't all set can't have been added. The
+ * array is sized for an expected number of strings and a false-positive rate of
+ * FALSE_POSITIVE_RATE, so a string never added passes with about that probability
+ * as long as no more strings than expected are added.
+ * Strings can't be removed, see AddressBook for how the filter is rebuilt.
+ * The filter also counts its queries so that the observed false-positive
+ * rate can be reported, see FilterStatistics. A rebuilt filter continues the
+ * counters of the filter it replaces.
+ * @author Anuj Bora
+ */
+class BloomFilter {
+  static final double FALSE_POSITIVE_RATE = 0.01;
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final long[] bits;
+  private final int bitCount;
+  private final int hashCount;
+  private final int capacity;
+  private int insertions = 0;
+  private long queries = 0;
+  private long definiteMisses = 0;
+  private long falsePositives = 0;
+
+  /**
+   * Creates an empty filter sized for capacity strings
+   * @param capacity expected number of strings, at least 1
+   */
+  BloomFilter(int capacity) {
+    this(capacity, null);
+  }
+
+  /**
+   * Creates an empty filter sized for capacity strings which replaces another
+   * filter and continues its query counters
+   * @param capacity expected number of strings, at least 1
+   * @param replaced filter being rebuilt, may be null
+   */
+  BloomFilter(int capacity, BloomFilter replaced) {
+    this.capacity = Math.max(1, capacity);
+    // m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hash functions are optimal
+    long optimalBits = (long) Math.ceil(-this.capacity * Math.log(FALSE_POSITIVE_RATE)
+        / (Math.log(2) * Math.log(2)));
+    bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, optimalBits));
+    hashCount = Math.max(1, (int) Math.round((double) bitCount / this.capacity * Math.log(2)));
+    bits = new long[(bitCount + 63) >>> 6];
+    if (replaced != null) {
+      queries = replaced.queries;
+      definiteMisses = replaced.definiteMisses;
+      falsePositives = replaced.falsePositives;
+    }
+  }
+
+  void put(String value) {
+    long hash = hash(value);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+      bits[bit >>> 6] |= 1L << bit;
+    }
+    insertions++;
+  }
+
+  /**
+   * Returns false if value has certainly never been added
+   */
+  boolean mightContain(String value) {
+    queries++;
+    long hash = hash(value);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+      if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+        definiteMisses++;
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Records that a value passing mightContain turned out not to be present
+   */
+  void falsePositive() {
+    falsePositives++;
+  }
+
+  /**
+   * Returns whether more strings were added than the filter was sized for
+   */
+  boolean isFull() {
+    return insertions > capacity;
+  }
+
+  int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the current size and counters of the filter
+   */
+  FilterStatistics statistics() {
+    // Expected rate for n added strings : (1 - e^(-kn/m))^k
+    double expectedRate = Math.pow(
+        1 - Math.exp(-(double) hashCount * insertions / bitCount), hashCount);
+    return new FilterStatistics(insertions, bitCount, hashCount, expectedRate, queries,
+        definiteMisses, falsePositives);
+  }
+
+  private static long hash(String value) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < value.length(); i++) {
+      char ch = value.charAt(i);
+      hash = (hash ^ (ch & 0xff)) * FNV_PRIME;
+      hash = (hash ^ (ch >>> 8)) * FNV_PRIME;
+    }
+    // Final mix so that the high half used as second hash is well distributed
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,199 @@
+package edu.nyu.pqs.ps1;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * OutputStream handing the written bytes over to a background thread which
+ * compresses them into a DeflaterOutputStream. Serialization on the calling
+ * thread thus overlaps with compression instead of waiting for it.
+ * Bytes are collected in chunks which are passed through a small bounded
+ * queue, so a fast writer blocks once the compressor falls behind, and the
+ * chunks are recycled once compressed. A failure of the compressor, be it an
+ * IOException or an unchecked exception or error, is rethrown by the next
+ * write, flush or finish.
+ * finish must be called to complete the compressed stream. The compressor
+ * then closes the sink, which releases its deflater, so the sink must leave
+ * the underlying stream open, see Compression.compress.
+ * @author Anuj Bora
+ */
+final class CompressingOutputStream extends OutputStream {
+  private static final int CHUNK_SIZE = 1 << 16;
+  private static final int QUEUED_CHUNKS = 4;
+  /*
+   * Marks the end of the data in the queue
+   */
+  private static final byte[] END = new byte[0];
+
+  private final DeflaterOutputStream sink;
+  private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<Chunk>(QUEUED_CHUNKS);
+  /*
+   * Compressed chunks ready for reuse, holds at most every chunk ever created
+   */
+  private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<Chunk>(QUEUED_CHUNKS + 2);
+  private final Thread compressor;
+  private volatile Throwable failure = null;
+  private Chunk current = new Chunk(new byte[CHUNK_SIZE]);
+  private boolean finished = false;
+
+  CompressingOutputStream(DeflaterOutputStream sink) {
+    this.sink = sink;
+    for (int i = 0; i < QUEUED_CHUNKS; i++) {
+      free.add(new Chunk(new byte[CHUNK_SIZE]));
+    }
+    compressor = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        compress();
+      }
+    }, "contact-file-compressor");
+    compressor.setDaemon(true);
+    compressor.start();
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (current.length == CHUNK_SIZE) {
+      handOver();
+    }
+    current.bytes[current.length++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    while (length > 0) {
+      if (current.length == CHUNK_SIZE) {
+        handOver();
+      }
+      int copied = Math.min(length, CHUNK_SIZE - current.length);
+      System.arraycopy(bytes, offset, current.bytes, current.length, copied);
+      current.length += copied;
+      offset += copied;
+      length -= copied;
+    }
+  }
+
+  /**
+   * Hands the bytes written so far to the compressor. The compressed stream
+   * itself isn't flushed, as that would degrade compression.
+   */
+  @Override
+  public void flush() throws IOException {
+    rethrowFailure();
+    if (current.length > 0) {
+      handOver();
+    }
+  }
+
+  /**
+   * Compresses all written bytes, completes the compressed stream and waits
+   * until it has been written to the underlying stream
+   * @throws IOException if compressing or writing failed
+   */
+  void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    try {
+      flush();
+    } finally {
+      // Ends the compressor thread even if the last chunk couldn't be handed over
+      put(new Chunk(END));
+    }
+    try {
+      compressor.join();
+    } catch (InterruptedException interrupted) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing");
+    }
+    rethrowFailure();
+  }
+
+  /**
+   * Same as finish
+   */
+  @Override
+  public void close() throws IOException {
+    finish();
+  }
+
+  private void handOver() throws IOException {
+    rethrowFailure();
+    put(current);
+    Chunk next = free.poll();
+    current = (next != null) ? next : new Chunk(new byte[CHUNK_SIZE]);
+  }
+
+  private void put(Chunk chunk) throws IOException {
+    try {
+      queue.put(chunk);
+    } catch (InterruptedException interrupted) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing");
+    }
+  }
+
+  /**
+   * Throws the failure of the compressor thread, if any, on the calling thread
+   */
+  private void rethrowFailure() throws IOException {
+    Throwable failed = failure;
+    if (failed instanceof IOException) {
+      throw (IOException) failed;
+    }
+    if (failed instanceof RuntimeException) {
+      throw (RuntimeException) failed;
+    }
+    if (failed instanceof Error) {
+      throw (Error) failed;
+    }
+  }
+
+  /**
+   * Body of the compressor thread. After a failure the remaining chunks are
+   * drained without being compressed so that the writer never blocks forever.
+   * Any Throwable is a failure, the thread must not die of it while a writer
+   * waits for room in the queue. The sink is closed in any case, so that its
+   * deflater is released.
+   */
+  private void compress() {
+    try {
+      Chunk chunk;
+      while ((chunk = queue.take()).bytes != END) {
+        if (failure == null) {
+          try {
+            sink.write(chunk.bytes, 0, chunk.length);
+          } catch (Throwable compressionFailed) {
+            failure = compressionFailed;
+          }
+        }
+        chunk.length = 0;
+        free.offer(chunk);
+      }
+    } catch (InterruptedException interrupted) {
+      failure = new InterruptedIOException("Compressor interrupted");
+    }
+    try {
+      sink.close();
+    } catch (Throwable compressionFailed) {
+      // After an earlier failure, closing only has to release the deflater
+      if (failure == null) {
+        failure = compressionFailed;
+      }
+    }
+  }
+
+  private static final class Chunk {
+    private final byte[] bytes;
+    private int length = 0;
+
+    Chunk(byte[] bytes) {
+      this.bytes = bytes;
+    }
+  }
+}
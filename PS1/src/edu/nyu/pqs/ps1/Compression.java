@@ -0,0 +1,142 @@
+package edu.nyu.pqs.ps1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression formats of contact files, chosen by the extension of the file
+ * name :
+ * <ul>
+ * <li> .gz or .gzip : gzip </li>
+ * <li> .deflate or .zz : zlib wrapped deflate </li>
+ * <li> anything else : uncompressed </li>
+ * </ul>
+ * @author Anuj Bora
+ */
+enum Compression {
+  NONE {
+    @Override
+    DeflaterOutputStream compress(OutputStream out) {
+      return null;
+    }
+
+    @Override
+    InputStream decompress(InputStream in) {
+      return in;
+    }
+  },
+  GZIP {
+    @Override
+    DeflaterOutputStream compress(OutputStream out) throws IOException {
+      return new GZIPOutputStream(out, BUFFER_SIZE) {
+        @Override
+        public void close() throws IOException {
+          closeKeepingOpen(this, def);
+        }
+      };
+    }
+
+    @Override
+    InputStream decompress(InputStream in) throws IOException {
+      // Reads all members of the file, see appendable
+      return new GZIPInputStream(in, BUFFER_SIZE);
+    }
+  },
+  DEFLATE {
+    @Override
+    DeflaterOutputStream compress(OutputStream out) {
+      return new DeflaterOutputStream(out, new Deflater(), BUFFER_SIZE) {
+        @Override
+        public void close() throws IOException {
+          closeKeepingOpen(this, def);
+        }
+      };
+    }
+
+    @Override
+    InputStream decompress(InputStream in) {
+      // The stream doesn't end an inflater it was given, so this one is ended on close
+      return new InflaterInputStream(in, new Inflater(), BUFFER_SIZE) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            inf.end();
+          }
+        }
+      };
+    }
+  };
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Returns the format of the file at path according to its extension
+   * @param path Path of a contact file
+   * @return Compression of the file, NONE for unknown extensions
+   */
+  static Compression of(Path path) {
+    Path fileName = path.getFileName();
+    String name = (fileName == null) ? "" : fileName.toString().toLowerCase(Locale.ROOT);
+    if (name.endsWith(".gz") || name.endsWith(".gzip")) {
+      return GZIP;
+    }
+    if (name.endsWith(".deflate") || name.endsWith(".zz")) {
+      return DEFLATE;
+    }
+    return NONE;
+  }
+
+  /**
+   * Returns whether data can be appended to an existing file of this format.
+   * A gzip file may consist of several members which are read as one stream,
+   * so an append simply adds a member; a deflate stream can't be continued.
+   */
+  boolean appendable() {
+    return this != DEFLATE;
+  }
+
+  /**
+   * Returns a stream compressing into out, null for NONE. Closing the returned
+   * stream completes the compressed data and releases the native memory of its
+   * deflater, but leaves out open so that it can still be synced or truncated.
+   * It must be closed once, also after a failure.
+   * @param out OutputStream receiving the compressed data
+   * @return DeflaterOutputStream writing to out
+   * @throws IOException if the stream header can't be written
+   */
+  abstract DeflaterOutputStream compress(OutputStream out) throws IOException;
+
+  /**
+   * Returns a stream decompressing in, in itself for NONE. Closing it releases
+   * its inflater and closes in.
+   * @param in InputStream of the compressed data
+   * @return InputStream of the decompressed data
+   * @throws IOException if the stream header can't be read
+   */
+  abstract InputStream decompress(InputStream in) throws IOException;
+
+  /**
+   * Completes the data of compressed and ends its deflater, even if completing
+   * failed. The stream compressed writes to is flushed but not closed.
+   */
+  private static void closeKeepingOpen(DeflaterOutputStream compressed, Deflater deflater)
+      throws IOException {
+    try {
+      compressed.finish();
+      compressed.flush();
+    } finally {
+      deflater.end();
+    }
+  }
+}
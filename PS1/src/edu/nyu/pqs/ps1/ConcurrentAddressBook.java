@@ -0,0 +1,259 @@
+package edu.nyu.pqs.ps1;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe Address Book with the same operations as AddressBook, optimized
+ * for workloads dominated by reads.
+ * <ul>
+ * <li> Searches never lock. They scan an immutable view of the contacts
+ *   which is published through a volatile reference. </li>
+ * <li> Writers enqueue their mutation and then compete for a lock. The thread
+ *   holding the lock applies every queued mutation in one batch and publishes
+ *   a single new view. Added contacts are appended to spare capacity of the
+ *   array behind the current view, which earlier views never read. Only a
+ *   batch containing removals copies the array, and that copy is shared by
+ *   all writers of the batch. </li>
+ * </ul>
+ * A search sees either all or none of the mutations of a batch, while getContact
+ * reflects each mutation as soon as it is applied. Contacts are kept in insertion
+ * order and UUIDs are unique, like in AddressBook.
+ * @author Anuj Bora
+ */
+public class ConcurrentAddressBook {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private volatile State state = new State(new Contact[INITIAL_CAPACITY], 0);
+  /*
+   * Index from UUID to contact, only modified while holding writeLock
+   */
+  private final Map<UUID, Contact> byId = new ConcurrentHashMap<UUID, Contact>();
+  private final ConcurrentLinkedQueue<Mutation> pending =
+      new ConcurrentLinkedQueue<Mutation>();
+  private final ReentrantLock writeLock = new ReentrantLock();
+
+  /**
+   * Adds a Contact to the Address Book. Returns false for a null argument
+   * or if a contact with the same UUID is already present in the Address Book
+   * @param contact contact to be added in Address Book
+   * @return boolean true if contact successfully added to Address Book
+   */
+  public boolean addContact(Contact contact) {
+    if (contact == null) {
+      return false;
+    }
+    return apply(new Mutation(Collections.singletonList(contact), null)) > 0;
+  }
+
+  /**
+   * Removes contact from the Address Book of the given UUID
+   * boolean false will be returned if contact isn't found matching to given UUID
+   * @param id the UUID of the contact to be deleted
+   * @return boolean true if contact of given UUID found and deleted
+   */
+  public boolean removeContact(UUID id) {
+    if (id == null) {
+      return false;
+    }
+    return apply(new Mutation(null, id)) > 0;
+  }
+
+  /**
+   * Returns the contact of the given UUID
+   * @param id the UUID of the contact
+   * @return Contact having the given UUID, null if no such contact exists
+   */
+  public Contact getContact(UUID id) {
+    return (id == null) ? null : byId.get(id);
+  }
+
+  /**
+   * Imports contacts from an external UTF-8 encoded JSON file having one contact
+   * per line. The file is parsed in parallel and all its contacts are added in a
+   * single batch, so readers see either none or all of them.
+   * Contacts whose UUID is already present in the Address Book are skipped.
+   * boolean false will be returned in case of exception in handling file
+   * so that the exception can be handled at client side
+   * @param path String The system-dependent filename.
+   * @return boolean true if contacts successfully imported
+   */
+  public boolean importContacts(String path) {
+    List<Contact> parsed;
+    try {
+      parsed = new ParallelImporter(ForkJoinPool.commonPool()).parse(Paths.get(path));
+    } catch (IOException FileAccessFailed) {
+      return false;
+    }
+    apply(new Mutation(parsed, null));
+    return true;
+  }
+
+  /**
+   * Exports the current contacts of the Address Book in the same format and with
+   * the same guarantees as AddressBook.exportContacts. Concurrent writers are
+   * not blocked; the export holds the contacts present when it started.
+   * boolean false will be returned in case of exception so that the
+   * exception can be handled on client side.
+   * @param path String The system-dependent filename.
+   * @return boolean true if contacts successfully exported
+   */
+  public boolean exportContacts(String path) {
+    try {
+      ContactFiles.writeAtomically(state.asList(), Paths.get(path));
+    } catch (IOException FileAccessFailed) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns list of contacts that matches provided keyword.
+   * Matching is case-insensitive, exactly like AddressBook.searchContacts.
+   * The search doesn't lock and runs against the contacts present when it started.
+   * @param keyword String the keyword to search
+   * @return List containing matched contacts. Returns Empty list if zero contacts matched.
+   */
+  public List<Contact> searchContacts(String keyword) {
+    List<Contact> matchedContacts = new ArrayList<Contact>();
+    keyword = keyword.toLowerCase();
+    State current = state;
+    for (int i = 0; i < current.size; i++) {
+      Contact c = current.contacts[i];
+      if (c.matches(keyword)) {
+        matchedContacts.add(c);
+      }
+    }
+    return matchedContacts;
+  }
+
+  /**
+   * Enqueues mutation and waits until it has been applied, applying the queued
+   * mutations of other threads as well if this thread gets the lock first
+   * @param mutation Mutation to be applied
+   * @return number of contacts changed by the mutation
+   */
+  private int apply(Mutation mutation) {
+    pending.add(mutation);
+    writeLock.lock();
+    try {
+      // Another writer may have applied the mutation while we waited for the lock
+      if (!mutation.applied) {
+        applyPending();
+      }
+      return mutation.changed;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Applies all queued mutations and publishes a new view of the contacts.
+   * Must be called while holding writeLock.
+   */
+  private void applyPending() {
+    // Contacts added by this batch which are still present at its end
+    Map<UUID, Contact> added = new LinkedHashMap<UUID, Contact>();
+    // Contacts present before this batch which it removed
+    Set<Contact> removed = Collections.newSetFromMap(new IdentityHashMap<Contact, Boolean>());
+    Mutation mutation;
+    while ((mutation = pending.poll()) != null) {
+      if (mutation.removedId != null) {
+        Contact c = byId.remove(mutation.removedId);
+        if (c != null) {
+          if (added.remove(mutation.removedId) == null) {
+            removed.add(c);
+          }
+          mutation.changed++;
+        }
+      } else {
+        for (Contact c : mutation.added) {
+          if (c != null && !byId.containsKey(c.getid())) {
+            byId.put(c.getid(), c);
+            added.put(c.getid(), c);
+            mutation.changed++;
+          }
+        }
+      }
+      mutation.applied = true;
+    }
+
+    State current = state;
+    Contact[] contacts = current.contacts;
+    int size = current.size;
+    if (!removed.isEmpty()) {
+      // Views handed out earlier still read the old array, so removal needs a copy
+      contacts = new Contact[capacityFor(size - removed.size() + added.size())];
+      size = 0;
+      for (int i = 0; i < current.size; i++) {
+        if (!removed.contains(current.contacts[i])) {
+          contacts[size++] = current.contacts[i];
+        }
+      }
+    } else if (size + added.size() > contacts.length) {
+      contacts = Arrays.copyOf(contacts, capacityFor(size + added.size()));
+    }
+    // Slots beyond the published size are never read by earlier views
+    for (Contact c : added.values()) {
+      contacts[size++] = c;
+    }
+    state = new State(contacts, size);
+  }
+
+  private static int capacityFor(int size) {
+    return Math.max(INITIAL_CAPACITY, size + (size >> 1));
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrentAddressBook [contacts=" + state.asList() + "]";
+  }
+
+  /**
+   * Immutable view of the contacts: the first size elements of contacts. Those
+   * elements are never modified after the view is published.
+   */
+  private static class State {
+    private final Contact[] contacts;
+    private final int size;
+
+    State(Contact[] contacts, int size) {
+      this.contacts = contacts;
+      this.size = size;
+    }
+
+    List<Contact> asList() {
+      return Arrays.asList(contacts).subList(0, size);
+    }
+  }
+
+  /**
+   * Queued change of the Address Book: either a list of contacts to be added
+   * or the UUID of a contact to be removed. The result fields are only
+   * accessed while holding writeLock.
+   */
+  private static class Mutation {
+    private final List<Contact> added;
+    private final UUID removedId;
+    private boolean applied = false;
+    private int changed = 0;
+
+    Mutation(List<Contact> added, UUID removedId) {
+      this.added = added;
+      this.removedId = removedId;
+    }
+  }
+}
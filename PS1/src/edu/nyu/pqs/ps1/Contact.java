@@ -23,6 +23,11 @@ public class Contact {
   private final String email;
   private final String address;
   private final String note;
+  /*
+   * Lowercased raw data used for searching. Computed on first use and then
+   * cached, which is safe as the contact is immutable. Not serialized
+   */
+  private transient String searchKey;
 	
   /**
    * Build the contact using Builder Pattern. Builder Pattern simulates the optional
@@ -49,6 +54,11 @@ public class Contact {
       }
     }        
 
+    private Builder(String name, UUID id) {
+      this.name = name;
+      this.id = id;
+    }
+
     /**
      * Sets postal address in the builder
      * @param postalAddress String the postal address of contact
@@ -140,6 +150,22 @@ public class Contact {
     }
   }
 	
+  /**
+   * Recreates a previously stored contact keeping its original UUID. The values
+   * are taken as they are; no validation or normalization is performed.
+   * @return Contact object holding the given values
+   */
+  static Contact restore(UUID id, String name, String postalAddress,
+      String phoneNumber, String email, String address, String note) {
+    Builder builder = new Builder(name, id);
+    builder.postalAddress = postalAddress;
+    builder.phoneNumber = phoneNumber;
+    builder.email = email;
+    builder.address = address;
+    builder.note = note;
+    return new Contact(builder);
+  }
+	
   private Contact(Builder builder) {
     name = builder.name;
     id = builder.id;
@@ -188,6 +214,31 @@ public class Contact {
       " " + address + " " + note;
   }
   
+  /**
+   * Returns the lowercased raw data of the contact. The value is computed once
+   * and cached, so repeated searches don't create any garbage. Racing threads
+   * may compute it twice, which is harmless as the result is the same.
+   * @return String rawData() in lower case
+   */
+  String searchKey() {
+    String key = searchKey;
+    if (key == null) {
+      key = rawData().toLowerCase();
+      searchKey = key;
+    }
+    return key;
+  }
+
+  /**
+   * Checks whether the raw data of the contact contains the keyword, ignoring
+   * case. Apart from the first call, no objects are allocated.
+   * @param lowerCaseKeyword keyword already converted to lower case
+   * @return boolean true if the keyword is part of the lowercased raw data
+   */
+  boolean matches(String lowerCaseKeyword) {
+    return searchKey().contains(lowerCaseKeyword);
+  }
+  
   /**
    * Method automatically generated using Eclipse
    * Calculates the hash code of the object using values of all the attributes
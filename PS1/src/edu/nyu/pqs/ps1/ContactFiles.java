@@ -0,0 +1,150 @@
+package edu.nyu.pqs.ps1;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Helper methods for reading and writing contacts to UTF-8 encoded JSON files
+ * holding one contact per line. Every write is flushed to the storage device
+ * before the method returns. Files are compressed according to their
+ * extension, see Compression; compression runs on a background thread.
+ * @author Anuj Bora
+ */
+final class ContactFiles {
+  static final int WRITE_BUFFER_SIZE = 1 << 16;
+  static final int READ_BUFFER_SIZE = 1 << 16;
+
+  private ContactFiles() {
+  }
+
+  /**
+   * Replaces the file at target with the given contacts. The contacts are
+   * written to a temporary file in the same directory which is synced and then
+   * renamed to target, so target either keeps its old content or holds all the
+   * contacts even if the export fails halfway.
+   * @param contacts contacts to be written, null elements are skipped
+   * @param target Path of the file to be written
+   * @throws IOException if the file can't be written
+   */
+  static void writeAtomically(Iterable<Contact> contacts, Path target)
+      throws IOException {
+    Path absolute = target.toAbsolutePath();
+    Path temp = Files.createTempFile(absolute.getParent(),
+        absolute.getFileName().toString(), ".tmp");
+    try {
+      try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+        write(contacts, out, Compression.of(absolute));
+      }
+      try {
+        Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException renameNotAtomic) {
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Appends the given contacts to the end of target. If the append fails, the
+   * file is truncated back to its previous length so that it never ends with
+   * a partially written contact. A gzip file gets a new member holding the
+   * contacts.
+   * @param contacts contacts to be written, null elements are skipped
+   * @param target Path of the file to be appended to
+   * @throws IOException if the file can't be written
+   * @throws IllegalArgumentException if the format of target can't be appended
+   *   to, see Compression.appendable
+   */
+  static void append(Iterable<Contact> contacts, Path target) throws IOException {
+    Compression compression = Compression.of(target);
+    if (!compression.appendable()) {
+      throw new IllegalArgumentException("Can't append to " + target);
+    }
+    try (FileOutputStream out = new FileOutputStream(target.toFile(), true)) {
+      FileChannel channel = out.getChannel();
+      long previousLength = channel.size();
+      try {
+        write(contacts, out, compression);
+      } catch (IOException appendFailed) {
+        channel.truncate(previousLength);
+        throw appendFailed;
+      }
+    }
+  }
+
+  /**
+   * Reads all contacts of the file at path, decompressing it according to its
+   * extension. Empty lines are skipped
+   * @param path Path of the file to be read
+   * @return List of contacts in file order
+   * @throws IOException if the file can't be read
+   */
+  static List<Contact> read(Path path) throws IOException {
+    Gson gson = new Gson();
+    List<Contact> contacts = new ArrayList<Contact>();
+    // The file is a resource of its own, it is closed even if its header can't be read
+    try (FileInputStream in = new FileInputStream(path.toFile());
+        BufferedReader br = new BufferedReader(new InputStreamReader(
+            Compression.of(path).decompress(in), StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+      String line;
+      // Read JSON file line by line and convert each line's data to Contact object
+      while ((line = br.readLine()) != null) {
+        Contact c = gson.fromJson(line, Contact.class);
+        if (c != null) {
+          contacts.add(c);
+        }
+      }
+    }
+    return contacts;
+  }
+
+  /**
+   * Writes one contact per line through a large buffer and forces the written
+   * data to the storage device. The stream is left open.
+   */
+  private static void write(Iterable<Contact> contacts, FileOutputStream out,
+      Compression compression) throws IOException {
+    DeflaterOutputStream compressed = compression.compress(out);
+    CompressingOutputStream compressor =
+        (compressed == null) ? null : new CompressingOutputStream(compressed);
+    Gson gson = new Gson();
+    Writer writer = new BufferedWriter(new OutputStreamWriter(
+        (compressor == null) ? out : compressor, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+    try {
+      for (Contact c : contacts) {
+        if (c == null) {
+          continue;
+        }
+        // Output one object per line in the external file
+        gson.toJson(c, writer);
+        writer.write("\n");
+      }
+      writer.flush();
+    } finally {
+      if (compressor != null) {
+        // Waits for the compressor thread even if serialization failed
+        compressor.finish();
+      }
+    }
+    out.getChannel().force(true);
+  }
+}
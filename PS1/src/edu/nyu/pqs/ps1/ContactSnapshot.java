@@ -0,0 +1,287 @@
+package edu.nyu.pqs.ps1;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Binary snapshot of contacts which is read through a memory mapping. The
+ * layout of a snapshot file is :
+ * <ul>
+ * <li> header : magic number, format version, number of contacts and a
+ *   reserved int, 16 bytes in total </li>
+ * <li> offset table : for every contact the two longs of its UUID followed by
+ *   the int offset of its record, 20 bytes per contact </li>
+ * <li> records : name, postal address, phone number, email, address and note
+ *   of a contact, each stored as an int byte length followed by the UTF-8
+ *   bytes. A length of -1 stands for a null value </li>
+ * </ul>
+ * All numbers are big-endian. Offsets are ints, so a snapshot is limited to 2 GB.
+ * @author Anuj Bora
+ */
+class ContactSnapshot {
+  private static final int MAGIC = 0x50514142;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int ENTRY_SIZE = 20;
+  private static final int NULL_LENGTH = -1;
+
+  private final ByteBuffer buffer;
+  private final int count;
+
+  private ContactSnapshot(ByteBuffer buffer, Path path) throws IOException {
+    if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not an address book snapshot: " + path);
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported snapshot version " + buffer.getInt(4)
+          + ": " + path);
+    }
+    this.buffer = buffer;
+    this.count = buffer.getInt(8);
+    if (count < 0) {
+      throw new IOException("Corrupt snapshot, negative number of contacts: " + path);
+    }
+    if ((long) HEADER_SIZE + (long) count * ENTRY_SIZE > buffer.limit()) {
+      throw new IOException("Truncated snapshot, the offset table of " + count
+          + " contacts exceeds the file: " + path);
+    }
+  }
+
+  /**
+   * Maps the snapshot file into memory. Only the header is read; contacts
+   * are decoded when they are accessed. The returned list allocates an array
+   * of one reference and one flag per contact up front.
+   * @param path Path of the snapshot file
+   * @return List of the contacts in the snapshot, backed by the mapping. The
+   *   list supports set and appending, which don't change the file.
+   * @throws IOException if the file can't be mapped or isn't a snapshot
+   */
+  static List<Contact> open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Snapshot is too large to be mapped");
+      }
+      // The mapping stays valid after the channel is closed
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+          channel.size());
+      return new LazyContactList(new ContactSnapshot(mapped, path));
+    }
+  }
+
+  /**
+   * Writes contacts to a snapshot file. The snapshot is written to a temporary
+   * file which is synced and then renamed to target, so an existing snapshot at
+   * target, even one which is currently mapped, is never partially overwritten.
+   * @param contacts contacts to be written, null elements are skipped
+   * @param target Path of the snapshot file
+   * @throws IOException if the file can't be written
+   */
+  static void save(List<Contact> contacts, Path target) throws IOException {
+    List<Contact> live = new ArrayList<Contact>(contacts.size());
+    for (Contact c : contacts) {
+      if (c != null) {
+        live.add(c);
+      }
+    }
+    Path absolute = target.toAbsolutePath();
+    Path temp = Files.createTempFile(absolute.getParent(),
+        absolute.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        write(live, channel);
+        channel.force(true);
+      }
+      try {
+        Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException renameNotAtomic) {
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static void write(List<Contact> contacts, FileChannel channel)
+      throws IOException {
+    long recordsStart = HEADER_SIZE + (long) contacts.size() * ENTRY_SIZE;
+    ByteBuffer table = ByteBuffer.allocate((int) recordsStart);
+    table.putInt(MAGIC).putInt(VERSION).putInt(contacts.size()).putInt(0);
+
+    // Records are streamed after the offset table, which is filled in meanwhile
+    channel.position(recordsStart);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        Channels.newOutputStream(channel), ContactFiles.WRITE_BUFFER_SIZE));
+    long offset = recordsStart;
+    for (Contact c : contacts) {
+      if (offset > Integer.MAX_VALUE) {
+        throw new IOException("Snapshot exceeds 2 GB");
+      }
+      table.putLong(c.getid().getMostSignificantBits());
+      table.putLong(c.getid().getLeastSignificantBits());
+      table.putInt((int) offset);
+      offset += writeString(out, c.getName());
+      offset += writeString(out, c.getpostalAddress());
+      offset += writeString(out, c.getphoneNumber());
+      offset += writeString(out, c.getEmail());
+      offset += writeString(out, c.getAddress());
+      offset += writeString(out, c.getNote());
+    }
+    out.flush();
+
+    table.flip();
+    long position = 0;
+    while (table.hasRemaining()) {
+      position += channel.write(table, position);
+    }
+  }
+
+  private static int writeString(DataOutputStream out, String value)
+      throws IOException {
+    if (value == null) {
+      out.writeInt(NULL_LENGTH);
+      return 4;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+    return 4 + bytes.length;
+  }
+
+  int size() {
+    return count;
+  }
+
+  /**
+   * Returns the UUID of the contact at index without decoding the contact
+   * @param index index of the contact in the snapshot
+   * @return UUID of the contact
+   */
+  UUID id(int index) {
+    int entry = HEADER_SIZE + index * ENTRY_SIZE;
+    return new UUID(buffer.getLong(entry), buffer.getLong(entry + 8));
+  }
+
+  /**
+   * Decodes the contact at index. Safe to be called by multiple threads.
+   * @param index index of the contact in the snapshot
+   * @return a new Contact object holding the stored values
+   */
+  Contact decode(int index) {
+    int entry = HEADER_SIZE + index * ENTRY_SIZE;
+    // A duplicate has its own position, so concurrent decoding doesn't interfere
+    ByteBuffer record = buffer.duplicate();
+    record.position(buffer.getInt(entry + 16));
+    String name = readString(record);
+    String postalAddress = readString(record);
+    String phoneNumber = readString(record);
+    String email = readString(record);
+    String address = readString(record);
+    String note = readString(record);
+    return Contact.restore(id(index), name, postalAddress, phoneNumber, email,
+        address, note);
+  }
+
+  private static String readString(ByteBuffer record) {
+    int length = record.getInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    record.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * List of the contacts of a snapshot which decodes every contact on first
+   * access and keeps it afterwards. Its memory is linear in the number of
+   * contacts : a reference and a flag per contact, plus the decoded contacts.
+   * Elements can be replaced, e.g. by a null tombstone, and new contacts can be
+   * appended after the snapshot contacts.
+   * Concurrent readers always get the same Contact instance for an element, so
+   * contacts can still be tracked by identity.
+   */
+  static class LazyContactList extends AbstractList<Contact> {
+    private final ContactSnapshot snapshot;
+    private final AtomicReferenceArray<Contact> decoded;
+    /*
+     * Marks snapshot contacts which were replaced through set, as null is a
+     * legal replacement and can't be told apart from a not yet decoded contact
+     */
+    private final boolean[] replaced;
+    private final List<Contact> appended = new ArrayList<Contact>();
+
+    LazyContactList(ContactSnapshot snapshot) {
+      this.snapshot = snapshot;
+      this.decoded = new AtomicReferenceArray<Contact>(snapshot.size());
+      this.replaced = new boolean[snapshot.size()];
+    }
+
+    /**
+     * Returns the UUID of the element at index without decoding it. Must only
+     * be called for elements which weren't replaced by null.
+     */
+    UUID id(int index) {
+      if (index >= decoded.length()) {
+        return appended.get(index - decoded.length()).getid();
+      }
+      Contact c = decoded.get(index);
+      return (c != null) ? c.getid() : snapshot.id(index);
+    }
+
+    @Override
+    public Contact get(int index) {
+      if (index >= decoded.length()) {
+        return appended.get(index - decoded.length());
+      }
+      Contact c = decoded.get(index);
+      if (c == null && !replaced[index]) {
+        // Racing threads may decode the same contact twice, only the first one is kept
+        Contact fresh = snapshot.decode(index);
+        c = decoded.compareAndSet(index, null, fresh) ? fresh : decoded.get(index);
+      }
+      return c;
+    }
+
+    @Override
+    public Contact set(int index, Contact contact) {
+      if (index >= decoded.length()) {
+        return appended.set(index - decoded.length(), contact);
+      }
+      Contact previous = get(index);
+      decoded.set(index, contact);
+      replaced[index] = true;
+      return previous;
+    }
+
+    @Override
+    public void add(int index, Contact contact) {
+      if (index != size()) {
+        throw new UnsupportedOperationException("Contacts can only be appended");
+      }
+      appended.add(contact);
+      modCount++;
+    }
+
+    @Override
+    public int size() {
+      return decoded.length() + appended.size();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package edu.nyu.pqs.ps1;
+
+/**
+ * Size and effectiveness of one of the Bloom filters an Address Book uses to
+ * answer exact lookups of contacts which aren't present without scanning the
+ * contacts. Instances are immutable.
+ * @author Anuj Bora
+ */
+public class FilterStatistics {
+  private final int insertions;
+  private final int bits;
+  private final int hashFunctions;
+  private final double expectedFalsePositiveRate;
+  private final long queries;
+  private final long definiteMisses;
+  private final long falsePositives;
+
+  FilterStatistics(int insertions, int bits, int hashFunctions,
+      double expectedFalsePositiveRate, long queries, long definiteMisses,
+      long falsePositives) {
+    this.insertions = insertions;
+    this.bits = bits;
+    this.hashFunctions = hashFunctions;
+    this.expectedFalsePositiveRate = expectedFalsePositiveRate;
+    this.queries = queries;
+    this.definiteMisses = definiteMisses;
+    this.falsePositives = falsePositives;
+  }
+
+  /**
+   * Returns the number of values added to the filter since it was last rebuilt
+   * @return number of added values
+   */
+  public int getInsertions() {
+    return insertions;
+  }
+
+  /**
+   * Returns the size of the filter
+   * @return number of bits
+   */
+  public int getBits() {
+    return bits;
+  }
+
+  /**
+   * Returns the number of bits set per value
+   * @return number of hash functions
+   */
+  public int getHashFunctions() {
+    return hashFunctions;
+  }
+
+  /**
+   * Returns the probability that a value which was never added passes the
+   * filter, computed from its size and number of values
+   * @return expected false-positive rate between 0 and 1
+   */
+  public double getExpectedFalsePositiveRate() {
+    return expectedFalsePositiveRate;
+  }
+
+  /**
+   * Returns the number of lookups checked against the filter
+   * @return number of queries
+   */
+  public long getQueries() {
+    return queries;
+  }
+
+  /**
+   * Returns the number of lookups the filter rejected without scanning contacts
+   * @return number of definite misses
+   */
+  public long getDefiniteMisses() {
+    return definiteMisses;
+  }
+
+  /**
+   * Returns the number of lookups which passed the filter but found no contact
+   * @return number of false positives
+   */
+  public long getFalsePositives() {
+    return falsePositives;
+  }
+
+  /**
+   * Returns the share of lookups for absent values which passed the filter
+   * @return observed false-positive rate between 0 and 1, 0 if no lookup missed
+   */
+  public double getObservedFalsePositiveRate() {
+    long misses = definiteMisses + falsePositives;
+    return (misses == 0) ? 0 : (double) falsePositives / misses;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("FilterStatistics [insertions=%d, bits=%d, hashFunctions=%d, "
+        + "expectedFalsePositiveRate=%.4f, queries=%d, definiteMisses=%d, "
+        + "falsePositives=%d, observedFalsePositiveRate=%.4f]", insertions, bits,
+        hashFunctions, expectedFalsePositiveRate, queries, definiteMisses, falsePositives,
+        getObservedFalsePositiveRate());
+  }
+}
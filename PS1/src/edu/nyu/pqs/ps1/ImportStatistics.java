@@ -0,0 +1,77 @@
+package edu.nyu.pqs.ps1;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput figures of a single import of contacts into an Address Book.
+ * Instances are immutable.
+ * @author Anuj Bora
+ */
+public class ImportStatistics {
+  private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+  private final long records;
+  private final long bytes;
+  private final long elapsedNanos;
+
+  ImportStatistics(long records, long bytes, long elapsedNanos) {
+    this.records = records;
+    this.bytes = bytes;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Returns the number of contacts parsed from the file
+   * @return number of parsed records
+   */
+  public long getRecords() {
+    return records;
+  }
+
+  /**
+   * Returns the size of the imported file
+   * @return number of bytes read
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the wall clock time the import took
+   * @param unit TimeUnit in which the time should be returned
+   * @return elapsed time in the given unit
+   */
+  public long getElapsedTime(TimeUnit unit) {
+    return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the number of parsed contacts per second
+   * @return records per second, 0 if no time elapsed
+   */
+  public double recordsPerSecond() {
+    return perSecond(records);
+  }
+
+  /**
+   * Returns the number of megabytes read per second
+   * @return MB per second, 0 if no time elapsed
+   */
+  public double megabytesPerSecond() {
+    return perSecond(bytes) / BYTES_PER_MEGABYTE;
+  }
+
+  private double perSecond(double amount) {
+    if (elapsedNanos <= 0) {
+      return 0;
+    }
+    return amount * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ImportStatistics [records=%d, bytes=%d, elapsedMillis=%d, "
+        + "records/s=%.1f, MB/s=%.2f]", records, bytes,
+        getElapsedTime(TimeUnit.MILLISECONDS), recordsPerSecond(), megabytesPerSecond());
+  }
+}
@@ -0,0 +1,375 @@
+package edu.nyu.pqs.ps1;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe Address Book persisting every mutation as it happens, so that no
+ * edit is lost on a crash and no full export is needed to save it. The book
+ * lives in a directory holding :
+ * <ul>
+ * <li> contacts-N.snapshot : binary snapshot of the book, see
+ *   AddressBook.saveSnapshot </li>
+ * <li> contacts-N.log : append-only log of the contacts added and removed
+ *   since that snapshot </li>
+ * </ul>
+ * addContact and removeContact apply the mutation in memory, append it to the
+ * log and return once it is on the storage device. Concurrent mutators are
+ * committed in groups sharing a single fsync, so a durable write costs a
+ * small share of an fsync instead of a rewrite of the whole file.
+ * Once the log outgrows the compaction threshold, the book is written to the
+ * snapshot of the next generation N + 1 and a new empty log is started. The
+ * files of the previous generation are deleted afterwards, along with the
+ * temporary files of snapshots whose writing was cut short by a crash.
+ * open recovers the book from the newest snapshot and replays its log.
+ * @author Anuj Bora
+ */
+public class JournaledAddressBook implements Closeable {
+  public static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+  private static final String PREFIX = "contacts-";
+  private static final String SNAPSHOT_SUFFIX = ".snapshot";
+  private static final String LOG_SUFFIX = ".log";
+  /*
+   * Suffix of the temporary files ContactSnapshot.save writes a snapshot to
+   */
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final Path directory;
+  private final long compactionThreshold;
+  /*
+   * Guards book, log and generation. It is only held while applying a
+   * mutation and buffering its record, not while waiting for the fsync
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+  private AddressBook book;
+  private MutationLog log;
+  private long generation;
+  /*
+   * Set once a record couldn't be written. The log then no longer matches the
+   * book, so further mutations are refused
+   */
+  private volatile boolean failed = false;
+
+  private JournaledAddressBook(Path directory, long compactionThreshold) {
+    this.directory = directory;
+    this.compactionThreshold = compactionThreshold;
+  }
+
+  /**
+   * Opens the Address Book stored in directory with the default compaction
+   * threshold of 64 MB, creating an empty one if the directory holds none
+   * @param directory Path of the directory, created if it doesn't exist
+   * @return JournaledAddressBook holding the recovered contacts
+   * @throws IOException if the files can't be read or written
+   */
+  public static JournaledAddressBook open(Path directory) throws IOException {
+    return open(directory, DEFAULT_COMPACTION_THRESHOLD);
+  }
+
+  /**
+   * Opens the Address Book stored in directory. The book is restored from the
+   * newest snapshot and the mutations logged after it are replayed. A record
+   * torn by a crash at the end of the log is discarded.
+   * @param directory Path of the directory, created if it doesn't exist
+   * @param compactionThreshold size of the log in bytes which triggers a compaction
+   * @return JournaledAddressBook holding the recovered contacts
+   * @throws IOException if the files can't be read or written
+   * @throws IllegalArgumentException if compactionThreshold isn't positive
+   */
+  public static JournaledAddressBook open(Path directory, long compactionThreshold)
+      throws IOException {
+    if (compactionThreshold <= 0) {
+      throw new IllegalArgumentException("Compaction threshold must be positive");
+    }
+    Files.createDirectories(directory);
+    JournaledAddressBook journaled = new JournaledAddressBook(directory, compactionThreshold);
+    journaled.generation = newestSnapshot(directory);
+    Path snapshot = journaled.snapshotPath(journaled.generation);
+    final AddressBook book = Files.exists(snapshot) ? AddressBook.openSnapshot(snapshot)
+        : new AddressBook();
+    journaled.book = book;
+    journaled.log = MutationLog.open(journaled.logPath(journaled.generation),
+        new MutationLog.Replay() {
+          @Override
+          public void added(Contact contact) {
+            book.addContact(contact);
+          }
+
+          @Override
+          public void removed(UUID id) {
+            book.removeContact(id);
+          }
+        });
+    syncDirectory(directory);
+    journaled.deleteOlderGenerations();
+    return journaled;
+  }
+
+  /**
+   * Adds a Contact to the Address Book and waits until the addition is durable.
+   * Returns false for a null argument, if a contact with the same UUID is
+   * already present, or if the addition couldn't be logged. After a failure
+   * to write the log every further mutation is refused.
+   * @param contact contact to be added in Address Book
+   * @return boolean true if contact successfully added and logged
+   * @throws InterruptedIOException if the thread was interrupted while waiting
+   *   for the addition to become durable. The contact has been added and will
+   *   be made durable by the next commit; the interrupt flag is restored.
+   */
+  public boolean addContact(Contact contact) throws InterruptedIOException {
+    MutationLog target;
+    long sequence;
+    lock.lock();
+    try {
+      if (failed || !book.addContact(contact)) {
+        return false;
+      }
+      target = log;
+      try {
+        sequence = log.appendAdd(contact);
+      } catch (IllegalArgumentException tooLarge) {
+        // The record can't be replayed, so the contact must not stay in the book
+        book.removeContact(contact.getid());
+        return false;
+      }
+    } finally {
+      lock.unlock();
+    }
+    return commit(target, sequence);
+  }
+
+  /**
+   * Removes the contact of the given UUID and waits until the removal is durable
+   * @param id the UUID of the contact
+   * @return boolean true if the contact was found, removed and the removal logged
+   * @throws InterruptedIOException if the thread was interrupted while waiting
+   *   for the removal to become durable, see addContact
+   */
+  public boolean removeContact(UUID id) throws InterruptedIOException {
+    MutationLog target;
+    long sequence;
+    lock.lock();
+    try {
+      if (failed || !book.removeContact(id)) {
+        return false;
+      }
+      target = log;
+      sequence = log.appendRemove(id);
+    } finally {
+      lock.unlock();
+    }
+    return commit(target, sequence);
+  }
+
+  /**
+   * Returns the contact of the given UUID
+   * @param id the UUID of the contact
+   * @return Contact having the given UUID, null if no such contact exists
+   */
+  public Contact getContact(UUID id) {
+    lock.lock();
+    try {
+      return book.getContact(id);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns list of contacts that matches provided keyword, see
+   * AddressBook.searchContacts
+   * @param keyword String the keyword to search
+   * @return List containing matched contacts. Returns Empty list if zero contacts matched.
+   */
+  public List<Contact> searchContacts(String keyword) {
+    lock.lock();
+    try {
+      return book.searchContacts(keyword);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes the Address Book to a new snapshot and starts a new empty log.
+   * Mutations wait while the snapshot is written. This happens automatically
+   * once the log outgrows the compaction threshold.
+   * @return boolean true if the Address Book was compacted
+   */
+  public boolean compact() {
+    lock.lock();
+    try {
+      if (failed) {
+        return false;
+      }
+      // Every logged mutation must be durable before its log is dropped
+      log.syncAll();
+      long next = generation + 1;
+      if (!book.saveSnapshot(snapshotPath(next))) {
+        return false;
+      }
+      MutationLog nextLog;
+      try {
+        // A log of the next generation can only be a leftover of a failed compaction
+        Files.deleteIfExists(logPath(next));
+        nextLog = MutationLog.open(logPath(next), null);
+      } catch (IOException logNotCreated) {
+        // Recovery must not prefer the new snapshot over the log still in use
+        try {
+          Files.deleteIfExists(snapshotPath(next));
+        } catch (IOException snapshotNotDeleted) {
+          failed = true;
+        }
+        throw logNotCreated;
+      }
+      syncDirectory(directory);
+      MutationLog previous = log;
+      log = nextLog;
+      generation = next;
+      previous.close();
+      deleteOlderGenerations();
+    } catch (IOException FileAccessFailed) {
+      return false;
+    } finally {
+      lock.unlock();
+    }
+    return true;
+  }
+
+  /**
+   * Closes the log. Every mutation has been made durable when its method
+   * returned, so nothing is lost
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      log.close();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until the record of sequence is durable and compacts the book if
+   * the log grew too large. Only a failed write or fsync marks the book as
+   * failed, an interrupted wait doesn't.
+   */
+  private boolean commit(MutationLog target, long sequence) throws InterruptedIOException {
+    try {
+      target.sync(sequence);
+    } catch (InterruptedIOException interrupted) {
+      // Nothing was lost, the record is committed by the next leader
+      Thread.currentThread().interrupt();
+      throw interrupted;
+    } catch (IOException FileAccessFailed) {
+      failed = true;
+      return false;
+    }
+    if (target.size() > compactionThreshold && lock.tryLock()) {
+      try {
+        // Another thread may have compacted already
+        if (log == target) {
+          compact();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    return true;
+  }
+
+  private Path snapshotPath(long generation) {
+    return directory.resolve(PREFIX + generation + SNAPSHOT_SUFFIX);
+  }
+
+  private Path logPath(long generation) {
+    return directory.resolve(PREFIX + generation + LOG_SUFFIX);
+  }
+
+  /**
+   * Returns the generation of the newest snapshot in directory, 0 if there is none
+   */
+  private static long newestSnapshot(Path directory) {
+    long newest = 0;
+    File[] files = directory.toFile().listFiles();
+    for (File f : (files == null) ? new File[0] : files) {
+      long generation = generationOf(f.getName(), SNAPSHOT_SUFFIX);
+      newest = Math.max(newest, generation);
+    }
+    return newest;
+  }
+
+  /**
+   * Returns the generation of a file name of the given kind, -1 for other files
+   */
+  private static long generationOf(String name, String suffix) {
+    if (!name.startsWith(PREFIX) || !name.endsWith(suffix)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(name.substring(PREFIX.length(), name.length() - suffix.length()));
+    } catch (NumberFormatException notAGeneration) {
+      return -1;
+    }
+  }
+
+  /**
+   * Returns true for the temporary files of snapshots, e.g.
+   * contacts-N.snapshot123.tmp
+   */
+  private static boolean isSnapshotTemp(String name) {
+    return name.startsWith(PREFIX) && name.endsWith(TEMP_SUFFIX)
+        && name.contains(SNAPSHOT_SUFFIX);
+  }
+
+  /**
+   * Deletes snapshots and logs older than the current generation as well as
+   * temporary snapshot files. These are only left behind by a save which
+   * failed or crashed, as no snapshot is being written while the lock is held
+   * or the book is being opened. Failures are ignored, the files are deleted
+   * again by the next open or compaction
+   */
+  private void deleteOlderGenerations() {
+    File[] files = directory.toFile().listFiles();
+    for (File f : (files == null) ? new File[0] : files) {
+      long snapshot = generationOf(f.getName(), SNAPSHOT_SUFFIX);
+      long log = generationOf(f.getName(), LOG_SUFFIX);
+      if ((snapshot >= 0 && snapshot < generation) || (log >= 0 && log < generation)
+          || isSnapshotTemp(f.getName())) {
+        f.delete();
+      }
+    }
+  }
+
+  /**
+   * Forces the directory entries of newly created files to the storage device.
+   * Not every platform can open a directory, in which case this does nothing.
+   */
+  private static void syncDirectory(Path directory) {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException notSupported) {
+      return;
+    }
+  }
+
+  @Override
+  public String toString() {
+    lock.lock();
+    try {
+      return book.toString();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,284 @@
+package edu.nyu.pqs.ps1;
+
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the mutations of an Address Book. Every record holds :
+ * <ul>
+ * <li> payload length, int </li>
+ * <li> type, byte : ADD with the contact as UTF-8 JSON as payload, or REMOVE
+ *   with the 16 bytes of the UUID as payload </li>
+ * <li> payload </li>
+ * <li> CRC32 of type and payload, int </li>
+ * </ul>
+ * Appending a record only buffers it in memory; sync makes it durable. Syncs
+ * are committed in groups : the first thread to sync becomes the leader,
+ * writes everything buffered so far and forces it to the device, while
+ * threads arriving meanwhile buffer their records and wait. The next leader
+ * then commits all of them with a single force, so concurrent mutators share
+ * the cost of one fsync.
+ * @author Anuj Bora
+ */
+class MutationLog implements Closeable {
+  static final byte ADD = 1;
+  static final byte REMOVE = 2;
+  private static final int HEADER_SIZE = 5;
+  private static final int TRAILER_SIZE = 4;
+  private static final int UUID_SIZE = 16;
+  /*
+   * Records longer than this can't have been written by append, so such a
+   * length marks a corrupt record
+   */
+  private static final int MAX_PAYLOAD = 1 << 24;
+
+  /**
+   * Receives the records of a log during replay
+   */
+  interface Replay {
+    void added(Contact contact);
+
+    void removed(UUID id);
+  }
+
+  private final FileChannel channel;
+  private final Gson gson = new Gson();
+  /*
+   * Records appended but not yet handed to a leader, guarded by this
+   */
+  private ByteArrayOutputStream buffered = new ByteArrayOutputStream();
+  private long appended = 0;
+  private long durable = 0;
+  private boolean syncing = false;
+  private IOException failure = null;
+  private long size;
+
+  private MutationLog(FileChannel channel, long size) {
+    this.channel = channel;
+    this.size = size;
+  }
+
+  /**
+   * Opens the log at path, creating it if it doesn't exist, and passes every
+   * record to replay in log order. A torn or corrupt record at the end of the
+   * log, left by a crash during a write, ends the replay and is cut off.
+   * @param path Path of the log file
+   * @param replay Replay receiving the records, may be null for a new log
+   * @return MutationLog appending after the last valid record
+   * @throws IOException if the log can't be read or written
+   */
+  static MutationLog open(Path path, Replay replay) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long valid = replay(channel, replay);
+      if (valid < channel.size()) {
+        channel.truncate(valid);
+        channel.force(true);
+      }
+      channel.position(valid);
+      return new MutationLog(channel, valid);
+    } catch (IOException openFailed) {
+      channel.close();
+      throw openFailed;
+    }
+  }
+
+  /**
+   * Reads records from the start of the log
+   * @return position after the last valid record
+   */
+  private static long replay(FileChannel channel, Replay replay) throws IOException {
+    Gson gson = new Gson();
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    long position = 0;
+    long end = channel.size();
+    while (end - position >= HEADER_SIZE + TRAILER_SIZE) {
+      header.clear();
+      readFully(channel, header, position);
+      int length = header.getInt(0);
+      byte type = header.get(4);
+      if (length < 0 || length > MAX_PAYLOAD
+          || end - position < HEADER_SIZE + (long) length + TRAILER_SIZE) {
+        break;
+      }
+      ByteBuffer record = ByteBuffer.allocate(length + TRAILER_SIZE);
+      readFully(channel, record, position + HEADER_SIZE);
+      CRC32 crc = new CRC32();
+      crc.update(type);
+      crc.update(record.array(), 0, length);
+      if ((int) crc.getValue() != record.getInt(length)) {
+        break;
+      }
+      if (type == ADD) {
+        String json = new String(record.array(), 0, length, StandardCharsets.UTF_8);
+        replay.added(gson.fromJson(json, Contact.class));
+      } else if (type == REMOVE && length == UUID_SIZE) {
+        replay.removed(new UUID(record.getLong(0), record.getLong(8)));
+      } else {
+        break;
+      }
+      position += HEADER_SIZE + length + TRAILER_SIZE;
+    }
+    return position;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of log");
+      }
+    }
+  }
+
+  /**
+   * Buffers a record adding contact
+   * @param contact Contact which was added
+   * @return sequence number to be passed to sync
+   * @throws IllegalArgumentException if the contact is too large to be logged,
+   *   i.e. its JSON is longer than 16 MB; replay would discard such a record
+   */
+  long appendAdd(Contact contact) {
+    return append(ADD, gson.toJson(contact).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Buffers a record removing the contact of the given UUID
+   * @param id UUID of the removed contact
+   * @return sequence number to be passed to sync
+   */
+  long appendRemove(UUID id) {
+    ByteBuffer payload = ByteBuffer.allocate(UUID_SIZE);
+    payload.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+    return append(REMOVE, payload.array());
+  }
+
+  private synchronized long append(byte type, byte[] payload) {
+    if (payload.length > MAX_PAYLOAD) {
+      throw new IllegalArgumentException("Record of " + payload.length + " bytes is too large");
+    }
+    CRC32 crc = new CRC32();
+    crc.update(type);
+    crc.update(payload, 0, payload.length);
+    ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length + TRAILER_SIZE);
+    record.putInt(payload.length).put(type).put(payload).putInt((int) crc.getValue());
+    buffered.write(record.array(), 0, record.capacity());
+    return ++appended;
+  }
+
+  /**
+   * Blocks until the record of the given sequence number and all records
+   * before it are durable, committing them in a group with records of other
+   * threads
+   * @param sequence sequence number returned by an append
+   * @throws InterruptedIOException if the thread was interrupted while
+   *   waiting for another thread's commit; the interrupt flag is restored, the
+   *   record may still become durable and the log stays usable
+   * @throws IOException if the records couldn't be written; the log is
+   *   unusable afterwards
+   */
+  void sync(long sequence) throws IOException {
+    ByteArrayOutputStream batch;
+    long batchEnd;
+    synchronized (this) {
+      while (true) {
+        if (durable >= sequence) {
+          return;
+        }
+        if (failure != null) {
+          throw failure;
+        }
+        if (!syncing) {
+          break;
+        }
+        awaitLeader();
+      }
+      // Become the leader and commit everything buffered so far
+      syncing = true;
+      batch = buffered;
+      batchEnd = appended;
+      buffered = new ByteArrayOutputStream();
+    }
+    IOException writeFailed = null;
+    // An interrupt during the write would close the channel for good
+    boolean interrupted = Thread.interrupted();
+    try {
+      ByteBuffer bytes = ByteBuffer.wrap(batch.toByteArray());
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      channel.force(false);
+    } catch (IOException e) {
+      writeFailed = e;
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    synchronized (this) {
+      syncing = false;
+      if (writeFailed == null) {
+        durable = batchEnd;
+        size += batch.size();
+      } else {
+        failure = writeFailed;
+      }
+      notifyAll();
+    }
+    if (writeFailed != null) {
+      throw writeFailed;
+    }
+  }
+
+  /**
+   * Makes every record appended so far durable
+   * @throws IOException if the records couldn't be written
+   */
+  void syncAll() throws IOException {
+    long last;
+    synchronized (this) {
+      last = appended;
+    }
+    sync(last);
+  }
+
+  /**
+   * Returns the number of durable bytes in the log
+   */
+  synchronized long size() {
+    return size;
+  }
+
+  /**
+   * Waits until the current leader has committed its batch. Must be called
+   * while holding the monitor of this log.
+   */
+  private void awaitLeader() throws IOException {
+    try {
+      wait();
+    } catch (InterruptedException interrupted) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the log");
+    }
+  }
+
+  /**
+   * Closes the log. Records which weren't synced are lost
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,184 @@
+package edu.nyu.pqs.ps1;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses a UTF-8 JSON-lines file of contacts in parallel. The file is split
+ * into byte ranges which start right after a line feed, so every range holds
+ * complete lines only. The ranges are parsed on a fork-join pool and the
+ * contacts are returned in file order.
+ * @author Anuj Bora
+ */
+class ParallelImporter {
+  private static final int MIN_CHUNK_SIZE = 1 << 20;
+  private static final int MAX_CHUNK_SIZE = 1 << 26;
+  /*
+   * Number of chunks created per worker thread so that threads finishing
+   * early can steal remaining work
+   */
+  private static final int CHUNKS_PER_THREAD = 4;
+  private static final int SCAN_BUFFER_SIZE = 8192;
+  private static final byte LINE_FEED = '\n';
+
+  private final ForkJoinPool pool;
+  private final Gson gson = new Gson();
+
+  ParallelImporter(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Parses every line of the file into a Contact. Empty lines are skipped.
+   * A compressed stream can't be split at arbitrary positions, so compressed
+   * files are read sequentially, see Compression
+   * @param path Path of the JSON-lines file
+   * @return List of parsed contacts in file order
+   * @throws IOException if the file can't be read
+   */
+  List<Contact> parse(Path path) throws IOException {
+    if (Compression.of(path) != Compression.NONE) {
+      return ContactFiles.read(path);
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long[] boundaries = split(channel);
+      try {
+        return pool.invoke(new ChunkParser(channel, boundaries, 0, boundaries.length - 1));
+      } catch (UncheckedIOException readFailed) {
+        throw readFailed.getCause();
+      }
+    }
+  }
+
+  /**
+   * Splits the file into ranges ending right after a line feed (or at the end
+   * of file). Range i spans from boundaries[i] up to boundaries[i + 1].
+   * @param channel FileChannel of the file
+   * @return array of range boundaries, starting with 0 and ending with file size
+   * @throws IOException if the file can't be read
+   */
+  private long[] split(FileChannel channel) throws IOException {
+    long size = channel.size();
+    long chunkSize = size / ((long) pool.getParallelism() * CHUNKS_PER_THREAD);
+    chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+    List<Long> boundaries = new ArrayList<Long>();
+    boundaries.add(0L);
+    long start = 0;
+    while (start < size) {
+      long end = (size - start <= chunkSize) ? size
+          : nextLineStart(channel, start + chunkSize, size);
+      boundaries.add(end);
+      start = end;
+    }
+    long[] result = new long[boundaries.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = boundaries.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the position right after the first line feed at or after position
+   * @param channel FileChannel of the file
+   * @param position position where the search starts
+   * @param size size of the file
+   * @return position of the start of the next line, size if there is none
+   * @throws IOException if the file can't be read
+   */
+  private static long nextLineStart(FileChannel channel, long position, long size)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+    while (position < size) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == LINE_FEED) {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  /**
+   * Parses the ranges [from, to) of the file, splitting the work in halves
+   * until a single range is left
+   */
+  private class ChunkParser extends RecursiveTask<List<Contact>> {
+    private static final long serialVersionUID = 1L;
+    private final FileChannel channel;
+    private final long[] boundaries;
+    private final int from;
+    private final int to;
+
+    ChunkParser(FileChannel channel, long[] boundaries, int from, int to) {
+      this.channel = channel;
+      this.boundaries = boundaries;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected List<Contact> compute() {
+      if (to - from <= 1) {
+        try {
+          return parseRange(boundaries[from], boundaries[to]);
+        } catch (IOException readFailed) {
+          throw new UncheckedIOException(readFailed);
+        }
+      }
+      int middle = (from + to) >>> 1;
+      ChunkParser left = new ChunkParser(channel, boundaries, from, middle);
+      left.fork();
+      List<Contact> right = new ChunkParser(channel, boundaries, middle, to).compute();
+      // Merge in file order: contacts of the left half come first
+      List<Contact> merged = left.join();
+      merged.addAll(right);
+      return merged;
+    }
+
+    private List<Contact> parseRange(long start, long end) throws IOException {
+      List<Contact> parsed = new ArrayList<Contact>();
+      if (start >= end) {
+        return parsed;
+      }
+      byte[] bytes = new byte[(int) (end - start)];
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      // Positional reads don't move the channel position, so chunks can be read concurrently
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, start + buffer.position()) < 0) {
+          break;
+        }
+      }
+      String text = new String(bytes, 0, buffer.position(), StandardCharsets.UTF_8);
+      int lineStart = 0;
+      while (lineStart < text.length()) {
+        int lineEnd = text.indexOf(LINE_FEED, lineStart);
+        if (lineEnd < 0) {
+          lineEnd = text.length();
+        }
+        Contact c = gson.fromJson(text.substring(lineStart, lineEnd), Contact.class);
+        if (c != null) {
+          parsed.add(c);
+        }
+        lineStart = lineEnd + 1;
+      }
+      return parsed;
+    }
+  }
+}
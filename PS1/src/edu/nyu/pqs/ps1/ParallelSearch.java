@@ -0,0 +1,92 @@
+package edu.nyu.pqs.ps1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Matches a keyword against a list of contacts in parallel. The list is split
+ * into ranges which are scanned on a fork-join pool, and the matches are
+ * returned in list order. Lists shorter than SEQUENTIAL_THRESHOLD are scanned
+ * on the calling thread, where splitting would cost more than it saves.
+ * @author Anuj Bora
+ */
+class ParallelSearch {
+  static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+  /*
+   * Number of ranges created per worker thread so that threads finishing
+   * early can steal remaining work
+   */
+  private static final int RANGES_PER_THREAD = 4;
+
+  private final ForkJoinPool pool;
+
+  ParallelSearch(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Returns the contacts of the list matching lowerKeyword
+   * @param contacts List supporting fast random access, null elements are skipped
+   * @param lowerKeyword lowercased keyword, see Contact.matches
+   * @return List of matched contacts in list order
+   */
+  List<Contact> search(List<Contact> contacts, String lowerKeyword) {
+    if (contacts.size() < SEQUENTIAL_THRESHOLD) {
+      return scan(contacts, lowerKeyword, 0, contacts.size());
+    }
+    int rangeSize = contacts.size() / (pool.getParallelism() * RANGES_PER_THREAD);
+    rangeSize = Math.max(SEQUENTIAL_THRESHOLD, rangeSize);
+    return pool.invoke(new RangeSearch(contacts, lowerKeyword, rangeSize, 0, contacts.size()));
+  }
+
+  private static List<Contact> scan(List<Contact> contacts, String lowerKeyword, int from,
+      int to) {
+    List<Contact> matched = new ArrayList<Contact>();
+    for (int i = from; i < to; i++) {
+      Contact c = contacts.get(i);
+      if (c != null && c.matches(lowerKeyword)) {
+        matched.add(c);
+      }
+    }
+    return matched;
+  }
+
+  /**
+   * Scans contacts [from, to), splitting the work in halves until a range is
+   * no longer than rangeSize
+   */
+  private static class RangeSearch extends RecursiveTask<List<Contact>> {
+    private static final long serialVersionUID = 1L;
+    private final List<Contact> contacts;
+    private final String lowerKeyword;
+    private final int rangeSize;
+    private final int from;
+    private final int to;
+
+    RangeSearch(List<Contact> contacts, String lowerKeyword, int rangeSize, int from, int to) {
+      this.contacts = contacts;
+      this.lowerKeyword = lowerKeyword;
+      this.rangeSize = rangeSize;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected List<Contact> compute() {
+      if (to - from <= rangeSize) {
+        return scan(contacts, lowerKeyword, from, to);
+      }
+      int middle = (from + to) >>> 1;
+      RangeSearch left = new RangeSearch(contacts, lowerKeyword, rangeSize, from, middle);
+      left.fork();
+      List<Contact> right =
+          new RangeSearch(contacts, lowerKeyword, rangeSize, middle, to).compute();
+      // Merge in list order: matches of the left half come first
+      List<Contact> merged = left.join();
+      merged.addAll(right);
+      return merged;
+    }
+  }
+}
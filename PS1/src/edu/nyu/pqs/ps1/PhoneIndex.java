@@ -0,0 +1,328 @@
+package edu.nyu.pqs.ps1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Sorted index over the digits of the phone numbers of contacts. Every phone
+ * number is reduced to its digits and stored in two sorted runs :
+ * <ul>
+ * <li> numbers, holding the whole digit string of every phone number, which
+ *   answers prefix queries by a range lookup </li>
+ * <li> suffixes, holding every suffix of every digit string. A substring of a
+ *   number is a prefix of one of its suffixes, so substring queries are range
+ *   lookups too </li>
+ * </ul>
+ * Digit strings are encoded into longs which sort in the same order as the
+ * strings, so a run is a pair of primitive key and contact arrays searched by
+ * binary search. Only the first MAX_KEY_DIGITS digits fit into a key; longer
+ * queries are verified against the phone number.
+ * Contacts are tracked by identity and returned in no particular order.
+ * @author Anuj Bora
+ */
+class PhoneIndex {
+  static final int MAX_KEY_DIGITS = 18;
+  /*
+   * Every digit d is stored as d + 1, leaving 0 for positions after the end
+   * of the digit string
+   */
+  private static final int RADIX = 11;
+
+  private final SortedRun numbers = new SortedRun();
+  private final SortedRun suffixes = new SortedRun();
+
+  /**
+   * Adds the phone number of contact to the index. Contacts without any digit
+   * in their phone number aren't indexed
+   * @param contact Contact to be indexed
+   */
+  void add(Contact contact) {
+    String digits = digitsOf(contact.getphoneNumber());
+    if (!digits.isEmpty()) {
+      numbers.add(encode(digits, 0), contact);
+      for (int i = 0; i < digits.length(); i++) {
+        suffixes.add(encode(digits, i), contact);
+      }
+      numbers.mergeIfFull();
+      suffixes.mergeIfFull();
+    }
+  }
+
+  /**
+   * Adds the phone numbers of all contacts, sorting the index only once
+   * @param contacts contacts to be indexed, null elements are skipped
+   */
+  void addAll(Collection<Contact> contacts) {
+    for (Contact c : contacts) {
+      if (c == null) {
+        continue;
+      }
+      String digits = digitsOf(c.getphoneNumber());
+      if (!digits.isEmpty()) {
+        numbers.add(encode(digits, 0), c);
+        for (int i = 0; i < digits.length(); i++) {
+          suffixes.add(encode(digits, i), c);
+        }
+      }
+    }
+    numbers.merge();
+    suffixes.merge();
+  }
+
+  /**
+   * Removes the phone number of contact from the index
+   * @param contact Contact to be removed from the index
+   */
+  void remove(Contact contact) {
+    if (!digitsOf(contact.getphoneNumber()).isEmpty()) {
+      numbers.remove(contact);
+      suffixes.remove(contact);
+    }
+  }
+
+  /**
+   * Returns contacts whose phone number digits start with the digits of prefix
+   * @param prefix phone number prefix, non-digit characters are ignored
+   * @return List of matching contacts, empty if prefix has no digits
+   */
+  List<Contact> startingWith(String prefix) {
+    String digits = digitsOf(prefix);
+    List<Contact> result = numbers.startingWith(digits);
+    if (digits.length() > MAX_KEY_DIGITS) {
+      // Keys only hold the first digits, so the remaining ones must be checked
+      List<Contact> verified = new ArrayList<Contact>();
+      for (Contact c : result) {
+        if (digitsOf(c.getphoneNumber()).startsWith(digits)) {
+          verified.add(c);
+        }
+      }
+      return verified;
+    }
+    return result;
+  }
+
+  /**
+   * Returns contacts whose phone number digits contain the digits of part
+   * @param part part of a phone number, non-digit characters are ignored
+   * @return List of matching contacts, empty if part has no digits
+   */
+  List<Contact> containing(String part) {
+    String digits = digitsOf(part);
+    List<Contact> result = suffixes.startingWith(digits);
+    if (digits.length() > MAX_KEY_DIGITS) {
+      List<Contact> verified = new ArrayList<Contact>();
+      for (Contact c : result) {
+        if (digitsOf(c.getphoneNumber()).contains(digits)) {
+          verified.add(c);
+        }
+      }
+      return verified;
+    }
+    return result;
+  }
+
+  /**
+   * Encodes up to MAX_KEY_DIGITS digits of digits starting at from. Comparing
+   * two keys gives the same result as comparing the encoded digit strings.
+   */
+  private static long encode(String digits, int from) {
+    long key = 0;
+    for (int i = 0; i < MAX_KEY_DIGITS; i++) {
+      int position = from + i;
+      int value = (position < digits.length()) ? digits.charAt(position) - '0' + 1 : 0;
+      key = key * RADIX + value;
+    }
+    return key;
+  }
+
+  /**
+   * Returns the greatest key starting with the digits of prefix, i.e. the key
+   * where every position after the prefix holds the highest value
+   */
+  private static long lastKeyStartingWith(String digits) {
+    long key = 0;
+    for (int i = 0; i < MAX_KEY_DIGITS; i++) {
+      int value = (i < digits.length()) ? digits.charAt(i) - '0' + 1 : RADIX - 1;
+      key = key * RADIX + value;
+    }
+    return key;
+  }
+
+  /**
+   * Returns the digits of number, dropping every other character
+   * @param number phone number, may be null
+   * @return String of digits, empty for null
+   */
+  static String digitsOf(String number) {
+    if (number == null) {
+      return "";
+    }
+    StringBuilder digits = new StringBuilder(number.length());
+    for (int i = 0; i < number.length(); i++) {
+      char ch = number.charAt(i);
+      if (ch >= '0' && ch <= '9') {
+        digits.append(ch);
+      }
+    }
+    return digits.toString();
+  }
+
+  /**
+   * Keys with their contacts kept in a sorted array plus a small unsorted
+   * buffer of recent additions. The buffer is merged into the sorted array once
+   * it outgrows the square root of the array, so a lookup costs a binary search
+   * plus a scan of the short buffer. Removed contacts are filtered out of lookups
+   * and purged during the next merge.
+   */
+  private static class SortedRun {
+    private static final int MIN_PENDING = 1024;
+
+    private long[] keys = new long[0];
+    private Contact[] owners = new Contact[0];
+    private long[] pendingKeys = new long[16];
+    private Contact[] pendingOwners = new Contact[16];
+    private int pendingCount = 0;
+    private final Set<Contact> removed =
+        Collections.newSetFromMap(new IdentityHashMap<Contact, Boolean>());
+
+    void add(long key, Contact contact) {
+      if (removed.contains(contact)) {
+        // The contact is added again, its old keys must go before new ones appear
+        merge();
+      }
+      if (pendingCount == pendingKeys.length) {
+        pendingKeys = Arrays.copyOf(pendingKeys, pendingCount * 2);
+        pendingOwners = Arrays.copyOf(pendingOwners, pendingCount * 2);
+      }
+      pendingKeys[pendingCount] = key;
+      pendingOwners[pendingCount] = contact;
+      pendingCount++;
+    }
+
+    void remove(Contact contact) {
+      removed.add(contact);
+      mergeIfFull();
+    }
+
+    void mergeIfFull() {
+      int limit = Math.max(MIN_PENDING, (int) Math.sqrt(keys.length));
+      if (pendingCount > limit || removed.size() > limit) {
+        merge();
+      }
+    }
+
+    /**
+     * Sorts the buffer and merges it into the sorted array, dropping the keys of
+     * removed contacts
+     */
+    void merge() {
+      sort(pendingKeys, pendingOwners, 0, pendingCount - 1);
+      long[] mergedKeys = new long[keys.length + pendingCount];
+      Contact[] mergedOwners = new Contact[mergedKeys.length];
+      int i = 0;
+      int j = 0;
+      int size = 0;
+      while (i < keys.length || j < pendingCount) {
+        boolean takeSorted = j == pendingCount
+            || (i < keys.length && keys[i] <= pendingKeys[j]);
+        long key = takeSorted ? keys[i] : pendingKeys[j];
+        Contact owner = takeSorted ? owners[i++] : pendingOwners[j++];
+        if (!removed.contains(owner)) {
+          mergedKeys[size] = key;
+          mergedOwners[size] = owner;
+          size++;
+        }
+      }
+      keys = Arrays.copyOf(mergedKeys, size);
+      owners = Arrays.copyOf(mergedOwners, size);
+      Arrays.fill(pendingOwners, 0, pendingCount, null);
+      pendingCount = 0;
+      removed.clear();
+    }
+
+    /**
+     * Returns the distinct contacts of all keys starting with digits
+     */
+    List<Contact> startingWith(String digits) {
+      List<Contact> result = new ArrayList<Contact>();
+      if (digits.isEmpty()) {
+        return result;
+      }
+      long low = encode(digits, 0);
+      long high = lastKeyStartingWith(digits);
+      // A number containing the digits more than once has several matching keys
+      Set<Contact> seen = Collections.newSetFromMap(new IdentityHashMap<Contact, Boolean>());
+      for (int i = lowerBound(low); i < keys.length && keys[i] <= high; i++) {
+        if (!removed.contains(owners[i]) && seen.add(owners[i])) {
+          result.add(owners[i]);
+        }
+      }
+      for (int i = 0; i < pendingCount; i++) {
+        if (pendingKeys[i] >= low && pendingKeys[i] <= high
+            && !removed.contains(pendingOwners[i]) && seen.add(pendingOwners[i])) {
+          result.add(pendingOwners[i]);
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Returns the index of the first key which is not less than key
+     */
+    private int lowerBound(long key) {
+      int low = 0;
+      int high = keys.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (keys[middle] < key) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Sorts keys[from..to] together with their owners using quicksort
+     */
+    private static void sort(long[] keys, Contact[] owners, int from, int to) {
+      while (from < to) {
+        long pivot = keys[(from + to) >>> 1];
+        int i = from;
+        int j = to;
+        while (i <= j) {
+          while (keys[i] < pivot) {
+            i++;
+          }
+          while (keys[j] > pivot) {
+            j--;
+          }
+          if (i <= j) {
+            long key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+            Contact owner = owners[i];
+            owners[i] = owners[j];
+            owners[j] = owner;
+            i++;
+            j--;
+          }
+        }
+        // Recurse into the smaller part to bound the stack depth
+        if (j - from < to - i) {
+          sort(keys, owners, from, j);
+          from = i;
+        } else {
+          sort(keys, owners, i, to);
+          to = j;
+        }
+      }
+    }
+  }
+}
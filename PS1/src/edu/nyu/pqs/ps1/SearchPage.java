@@ -0,0 +1,83 @@
+package edu.nyu.pqs.ps1;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One page of the results of a paginated search of an Address Book, together
+ * with the cursor from which the next page continues.
+ * @author Anuj Bora
+ */
+public final class SearchPage {
+  private final List<Contact> contacts;
+  private final Cursor nextCursor;
+
+  SearchPage(List<Contact> contacts, Cursor nextCursor) {
+    this.contacts = Collections.unmodifiableList(contacts);
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Returns the matched contacts of this page in insertion order
+   * @return unmodifiable List of contacts, empty if nothing matched
+   */
+  public List<Contact> getContacts() {
+    return contacts;
+  }
+
+  /**
+   * Returns whether further matches may follow this page. The page after a full
+   * page may turn out to be empty.
+   * @return boolean true if getNextCursor returns a cursor
+   */
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+
+  /**
+   * Returns the cursor to be passed to AddressBook.searchContacts(Cursor, int)
+   * to get the next page
+   * @return Cursor positioned after the last contact of this page, null if the
+   *   search is exhausted
+   */
+  public Cursor getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * Opaque position of a paginated search. It remembers the keyword, the slot
+   * of the last returned contact and its UUID, so the next page continues the
+   * scan right after that contact without rescanning earlier ones. For an
+   * indexed search it also keeps the sorted slots of the index candidates, so
+   * later pages don't look them up and sort them again. Cursors survive
+   * additions and removals of contacts, with one exception : once the last
+   * contact of the page has been removed and the Address Book compacted its
+   * slots, which removals trigger, the cursor can't be resumed.
+   */
+  public static final class Cursor {
+    final AddressBook book;
+    final String keyword;
+    final int slot;
+    final UUID lastId;
+    final int compactions;
+    /*
+     * Sorted slots of the index candidates of keyword, null if the search
+     * doesn't use the index. Contacts added later have slots from
+     * candidatesEnd on and are scanned
+     */
+    final int[] candidates;
+    final int candidatesEnd;
+
+    Cursor(AddressBook book, String keyword, int slot, UUID lastId, int compactions,
+        int[] candidates, int candidatesEnd) {
+      this.book = book;
+      this.keyword = keyword;
+      this.slot = slot;
+      this.lastId = lastId;
+      this.compactions = compactions;
+      this.candidates = candidates;
+      this.candidatesEnd = candidatesEnd;
+    }
+  }
+}
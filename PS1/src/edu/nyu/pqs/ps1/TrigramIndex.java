@@ -0,0 +1,147 @@
+package edu.nyu.pqs.ps1;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index over the lowercased raw data of contacts. Every contact is
+ * registered under each distinct trigram (three consecutive characters) of
+ * its lowercased raw data. A keyword of at least three characters can only
+ * be contained in contacts that appear in the posting list of every trigram
+ * of the keyword, so intersecting those posting lists gives a small set of
+ * candidates which then have to be verified.
+ * Contacts are tracked by identity.
+ * @author Anuj Bora
+ */
+class TrigramIndex {
+  static final int GRAM_LENGTH = 3;
+
+  private final Map<String, Set<Contact>> postings =
+      new HashMap<String, Set<Contact>>();
+
+  /**
+   * Registers contact under every trigram of its lowercased raw data
+   * @param contact Contact to be indexed
+   */
+  void add(Contact contact) {
+    for (String gram : trigrams(contact.searchKey())) {
+      Set<Contact> posting = postings.get(gram);
+      if (posting == null) {
+        posting = Collections.newSetFromMap(new IdentityHashMap<Contact, Boolean>());
+        postings.put(gram, posting);
+      }
+      posting.add(contact);
+    }
+  }
+
+  /**
+   * Registers all contacts like add, reusing one set of trigrams for the whole batch
+   * @param contacts contacts to be indexed, null elements are skipped
+   */
+  void addAll(Collection<Contact> contacts) {
+    Set<String> grams = new HashSet<String>();
+    for (Contact c : contacts) {
+      if (c == null) {
+        continue;
+      }
+      grams.clear();
+      trigrams(c.searchKey(), grams);
+      for (String gram : grams) {
+        Set<Contact> posting = postings.get(gram);
+        if (posting == null) {
+          posting = Collections.newSetFromMap(new IdentityHashMap<Contact, Boolean>());
+          postings.put(gram, posting);
+        }
+        posting.add(c);
+      }
+    }
+  }
+
+  /**
+   * Removes contact from every posting list it was registered in
+   * @param contact Contact to be removed from the index
+   */
+  void remove(Contact contact) {
+    for (String gram : trigrams(contact.searchKey())) {
+      Set<Contact> posting = postings.get(gram);
+      if (posting != null) {
+        posting.remove(contact);
+        // Drop empty posting lists so that the map doesn't grow forever
+        if (posting.isEmpty()) {
+          postings.remove(gram);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns contacts which contain every trigram of the keyword, in no
+   * particular order. The returned contacts are only candidates and may not
+   * contain the keyword itself.
+   * @param keyword lowercased keyword
+   * @return List of candidates, or null if the keyword is shorter than a
+   *   trigram and the index can't be used
+   */
+  List<Contact> candidates(String keyword) {
+    if (keyword.length() < GRAM_LENGTH) {
+      return null;
+    }
+    // Collect posting lists of the keyword; a missing trigram means no match
+    List<Set<Contact>> lists = new ArrayList<Set<Contact>>();
+    for (String gram : trigrams(keyword)) {
+      Set<Contact> posting = postings.get(gram);
+      if (posting == null) {
+        return new ArrayList<Contact>();
+      }
+      lists.add(posting);
+    }
+    // Intersect starting from the shortest posting list
+    Set<Contact> smallest = lists.get(0);
+    for (Set<Contact> posting : lists) {
+      if (posting.size() < smallest.size()) {
+        smallest = posting;
+      }
+    }
+    List<Contact> result = new ArrayList<Contact>();
+    for (Contact c : smallest) {
+      boolean inAll = true;
+      for (Set<Contact> posting : lists) {
+        if (posting != smallest && !posting.contains(c)) {
+          inAll = false;
+          break;
+        }
+      }
+      if (inAll) {
+        result.add(c);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the distinct trigrams of the given text
+   * @param text String to be split into trigrams
+   * @return Set of trigrams, empty if text is shorter than a trigram
+   */
+  private static Set<String> trigrams(String text) {
+    return trigrams(text, new HashSet<String>());
+  }
+
+  /**
+   * Adds the distinct trigrams of text to grams
+   * @return grams
+   */
+  private static Set<String> trigrams(String text, Set<String> grams) {
+    for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+      grams.add(text.substring(i, i + GRAM_LENGTH));
+    }
+    return grams;
+  }
+}
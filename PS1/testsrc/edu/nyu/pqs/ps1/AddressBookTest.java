@@ -0,0 +1,165 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+public class AddressBookTest {
+  private static final String[] NAMES = {"Tim", "Ann", "Bob", "Anna Bell", "Timothy"};
+
+  /**
+   * Returns count contacts cycling through a few names, phone numbers and emails
+   */
+  static List<Contact> contacts(int count) {
+    List<Contact> contacts = new ArrayList<Contact>();
+    for (int i = 0; i < count; i++) {
+      String name = NAMES[i % NAMES.length];
+      contacts.add(new Contact.Builder(name + " " + i).withphoneNumber("(212) 998-" + (3000 + i))
+          .withEmail(name.toLowerCase().replace(' ', '.') + "@nyu.edu").withNote("Note " + i)
+          .build());
+    }
+    return contacts;
+  }
+
+  private static AddressBook book(boolean searchIndexEnabled, List<Contact> contacts) {
+    AddressBook book = new AddressBook(searchIndexEnabled);
+    for (Contact c : contacts) {
+      assertTrue(book.addContact(c));
+    }
+    return book;
+  }
+
+  @Test
+  public void testSearchContacts_IndexMatchesScan() {
+    List<Contact> contacts = contacts(50);
+    AddressBook indexed = book(true, contacts);
+    AddressBook scanned = book(false, contacts);
+    for (String keyword : new String[] {"tim", "TIM", "anna", "nyu.edu", "998", "note 1",
+        "an", "", "missing", "bell@"}) {
+      assertEquals(keyword, scanned.searchContacts(keyword), indexed.searchContacts(keyword));
+    }
+  }
+
+  @Test
+  public void testSearchContacts_IndexInInsertionOrder() {
+    List<Contact> contacts = contacts(10);
+    AddressBook indexed = book(true, contacts);
+    List<Contact> expected = new ArrayList<Contact>();
+    for (Contact c : contacts) {
+      if (c.getName().startsWith("Tim")) {
+        expected.add(c);
+      }
+    }
+    assertEquals(expected, indexed.searchContacts("tim"));
+  }
+
+  @Test
+  public void testSearchContacts_IndexAfterRemoval() {
+    List<Contact> contacts = contacts(5);
+    AddressBook indexed = book(true, contacts);
+    assertTrue(indexed.removeContact(contacts.get(1).getid()));
+    assertEquals(Collections.emptyList(), indexed.searchContacts("ann "));
+    assertEquals(Collections.singletonList(contacts.get(3)), indexed.searchContacts("anna"));
+  }
+
+  @Test
+  public void testAddContact_DuplicateAndNull() {
+    Contact tim = contacts(1).get(0);
+    AddressBook book = new AddressBook();
+    assertTrue(book.addContact(tim));
+    assertFalse(book.addContact(tim));
+    assertFalse(book.addContact(null));
+    assertEquals(Collections.singletonList(tim), book.searchContacts(""));
+  }
+
+  @Test
+  public void testRemoveContact_ById() {
+    List<Contact> contacts = contacts(3);
+    AddressBook book = book(false, contacts);
+    assertTrue(book.removeContact(contacts.get(1).getid()));
+    assertFalse(book.removeContact(contacts.get(1).getid()));
+    assertFalse(book.removeContact(UUID.randomUUID()));
+    assertNull(book.getContact(contacts.get(1).getid()));
+    assertEquals(contacts.get(2), book.getContact(contacts.get(2).getid()));
+    assertEquals(Arrays.asList(contacts.get(0), contacts.get(2)), book.searchContacts(""));
+  }
+
+  @Test
+  public void testRemoveContact_Compaction() {
+    List<Contact> contacts = contacts(20);
+    AddressBook book = book(true, contacts);
+    List<Contact> remaining = new ArrayList<Contact>();
+    // Removing all but every fourth contact compacts the slots several times
+    for (int i = 0; i < contacts.size(); i++) {
+      if (i % 4 == 0) {
+        remaining.add(contacts.get(i));
+      } else {
+        assertTrue(book.removeContact(contacts.get(i).getid()));
+      }
+    }
+    assertEquals(remaining, book.searchContacts(""));
+    assertEquals(remaining, book.searchContacts("nyu.edu"));
+    for (Contact c : contacts) {
+      assertEquals(remaining.contains(c) ? c : null, book.getContact(c.getid()));
+    }
+    // Slots are reassigned consistently for later additions and removals
+    Contact added = contacts(21).get(20);
+    assertTrue(book.addContact(added));
+    assertTrue(book.removeContact(remaining.get(0).getid()));
+    assertEquals(added, book.getContact(added.getid()));
+    assertEquals(remaining.size(), book.searchContacts("nyu.edu").size());
+  }
+
+  @Test
+  public void testRemoveContact_ReAdd() {
+    Contact tim = contacts(1).get(0);
+    AddressBook book = new AddressBook();
+    assertTrue(book.addContact(tim));
+    assertTrue(book.removeContact(tim.getid()));
+    assertTrue(book.addContact(tim));
+    assertEquals(tim, book.getContact(tim.getid()));
+  }
+
+  @Test
+  public void testAddAll_SameAsAddContact() {
+    List<Contact> contacts = new ArrayList<Contact>(contacts(40));
+    List<Contact> batch = new ArrayList<Contact>(contacts);
+    batch.add(null);
+    batch.add(contacts.get(5));
+    for (boolean indexed : new boolean[] {false, true}) {
+      AddressBook bulk = new AddressBook(indexed);
+      // Builds the lazy indexes first, so addAll has to update them
+      bulk.searchByPhonePrefix("212");
+      bulk.searchBySimilarName("tim", 1, 1);
+      bulk.autocompleteName("t", 1);
+      assertTrue(bulk.addContact(contacts.get(0)));
+      assertEquals(contacts.size() - 1, bulk.addAll(batch));
+      AddressBook single = book(indexed, contacts);
+      for (String keyword : new String[] {"tim", "nyu.edu", "an", "note 3"}) {
+        assertEquals(single.searchContacts(keyword), bulk.searchContacts(keyword));
+      }
+      assertEquals(single.searchByPhoneSubstring("301"), bulk.searchByPhoneSubstring("301"));
+      assertEquals(single.searchBySimilarName("bob 1", 1, 5),
+          bulk.searchBySimilarName("bob 1", 1, 5));
+      assertEquals(single.autocompleteName("anna", 20), bulk.autocompleteName("anna", 20));
+      assertEquals(contacts.get(7), bulk.getContact(contacts.get(7).getid()));
+      assertTrue(bulk.removeContact(contacts.get(7).getid()));
+    }
+  }
+
+  @Test
+  public void testAddAll_Empty() {
+    AddressBook book = new AddressBook(true);
+    assertEquals(0, book.addAll(Collections.<Contact>emptyList()));
+    assertEquals(Collections.emptyList(), book.searchContacts(""));
+  }
+}
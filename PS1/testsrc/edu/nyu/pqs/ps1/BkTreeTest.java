@@ -0,0 +1,137 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+public class BkTreeTest {
+
+  private static Contact named(String name) {
+    return new Contact.Builder(name).build();
+  }
+
+  @Test
+  public void testDistance() {
+    assertEquals(0, BkTree.distance("john", "john"));
+    assertEquals(2, BkTree.distance("jonh", "john"));
+    assertEquals(1, BkTree.distance("jon", "john"));
+    assertEquals(3, BkTree.distance("kitten", "sitting"));
+    assertEquals(4, BkTree.distance("", "anna"));
+    assertEquals(BkTree.distance("sunday", "saturday"), BkTree.distance("saturday", "sunday"));
+  }
+
+  @Test
+  public void testWithin_GroupedByDistance() {
+    Contact john = named("John");
+    Contact jon = named("Jon");
+    Contact joan = named("JOAN");
+    Contact mary = named("Mary");
+    BkTree tree = new BkTree();
+    tree.addAll(Arrays.asList(john, jon, joan, mary));
+    List<List<Contact>> within = tree.within("john", 1);
+    assertEquals(2, within.size());
+    assertEquals(Collections.singletonList(john), within.get(0));
+    assertEquals(new HashSet<Contact>(Arrays.asList(jon, joan)),
+        new HashSet<Contact>(within.get(1)));
+    assertTrue(tree.within("xyz", 2).get(2).isEmpty());
+    assertTrue(new BkTree().within("john", 3).get(0).isEmpty());
+  }
+
+  @Test
+  public void testRemove_SameName() {
+    Contact john = named("John");
+    Contact otherJohn = named("john");
+    BkTree tree = new BkTree();
+    tree.add(john);
+    tree.add(otherJohn);
+    tree.remove(john);
+    assertEquals(Collections.singletonList(otherJohn), tree.within("john", 0).get(0));
+    tree.remove(named("John"));
+    assertEquals(1, tree.within("john", 0).get(0).size());
+  }
+
+  @Test
+  public void testWithin_MatchesBruteForce() {
+    Random random = new Random(7);
+    BkTree tree = new BkTree();
+    List<Contact> contacts = new ArrayList<Contact>();
+    for (int i = 0; i < 500; i++) {
+      StringBuilder name = new StringBuilder();
+      for (int length = 1 + random.nextInt(7); length > 0; length--) {
+        name.append((char) ('a' + random.nextInt(4)));
+      }
+      Contact c = named(name.toString());
+      contacts.add(c);
+      tree.add(c);
+    }
+    for (int i = 0; i < 50; i++) {
+      String query = contacts.get(random.nextInt(contacts.size())).getName() + "b";
+      List<List<Contact>> within = tree.within(query, 2);
+      for (int d = 0; d <= 2; d++) {
+        int expected = 0;
+        for (Contact c : contacts) {
+          if (BkTree.distance(query, c.getName()) == d) {
+            expected++;
+          }
+        }
+        assertEquals(query + " " + d, expected, within.get(d).size());
+      }
+    }
+  }
+
+  @Test
+  public void testSearchBySimilarName() {
+    List<Contact> contacts = Arrays.asList(named("Jonh"), named("John"), named("Joan"),
+        named("Jon"), named("Mary"));
+    AddressBook book = new AddressBook();
+    book.addAll(contacts);
+    // Closest first, "Jonh" is two replacements away
+    assertEquals(Arrays.asList(contacts.get(1), contacts.get(2), contacts.get(3),
+        contacts.get(0)), book.searchBySimilarName("JOHN", 2, 10));
+    assertEquals(Arrays.asList(contacts.get(1), contacts.get(2)),
+        book.searchBySimilarName("john", 1, 2));
+    assertTrue(book.removeContact(contacts.get(1).getid()));
+    book.addContact(named("Johnny"));
+    assertEquals(Arrays.asList(contacts.get(2), contacts.get(3)),
+        book.searchBySimilarName("john", 1, 10));
+    assertTrue(book.searchBySimilarName("xavier", 0, 10).isEmpty());
+  }
+
+  @Test
+  public void testWithin_HugeDistanceIsBounded() {
+    BkTree tree = new BkTree();
+    tree.addAll(Arrays.asList(named("Jon"), named("Mary"), named("Bartholomew")));
+    // No distance exceeds the longest name plus the query
+    List<List<Contact>> within = tree.within("ann", Integer.MAX_VALUE);
+    assertEquals("bartholomew".length() + "ann".length() + 1, within.size());
+    int found = 0;
+    for (List<Contact> sameDistance : within) {
+      found += sameDistance.size();
+    }
+    assertEquals(3, found);
+    assertEquals(4, new BkTree().within("ann", Integer.MAX_VALUE).size());
+  }
+
+  @Test
+  public void testSearchBySimilarName_MaxIntDistance() {
+    List<Contact> contacts = Arrays.asList(named("John"), named("Mary"), named("Jon"));
+    AddressBook book = new AddressBook();
+    book.addAll(contacts);
+    assertEquals(Arrays.asList(contacts.get(0), contacts.get(2), contacts.get(1)),
+        book.searchBySimilarName("john", Integer.MAX_VALUE, 10));
+    assertTrue(new AddressBook().searchBySimilarName("john", Integer.MAX_VALUE, 10).isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSearchBySimilarName_InvalidLimit() {
+    new AddressBook().searchBySimilarName("john", 1, 0);
+  }
+}
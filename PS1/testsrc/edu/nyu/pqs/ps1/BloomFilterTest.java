@@ -0,0 +1,199 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BloomFilterTest {
+  private final TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void createFolder() throws IOException {
+    folder.create();
+  }
+
+  @After
+  public void deleteFolder() {
+    folder.delete();
+  }
+
+  @Test
+  public void testMightContain_NoFalseNegatives() {
+    BloomFilter filter = new BloomFilter(1000);
+    for (int i = 0; i < 1000; i++) {
+      filter.put("value" + i);
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(filter.mightContain("value" + i));
+    }
+    assertFalse(filter.isFull());
+  }
+
+  @Test
+  public void testMightContain_FalsePositiveRate() {
+    BloomFilter filter = new BloomFilter(1000);
+    for (int i = 0; i < 1000; i++) {
+      filter.put("value" + i);
+    }
+    int passed = 0;
+    for (int i = 0; i < 10000; i++) {
+      if (filter.mightContain("absent" + i)) {
+        passed++;
+      }
+    }
+    // About 1% expected, allow a generous margin
+    assertTrue("False positives: " + passed, passed < 300);
+    FilterStatistics statistics = filter.statistics();
+    assertEquals(10000, statistics.getQueries());
+    assertEquals(10000 - passed, statistics.getDefiniteMisses());
+    assertEquals(BloomFilter.FALSE_POSITIVE_RATE,
+        statistics.getExpectedFalsePositiveRate(), 0.005);
+  }
+
+  @Test
+  public void testIsFull_MoreInsertionsThanCapacity() {
+    BloomFilter filter = new BloomFilter(2);
+    filter.put("a");
+    filter.put("b");
+    assertFalse(filter.isFull());
+    filter.put("c");
+    assertTrue(filter.isFull());
+  }
+
+  @Test
+  public void testStatistics_RebuiltFilterContinuesCounters() {
+    BloomFilter filter = new BloomFilter(10);
+    filter.put("a");
+    assertFalse(filter.mightContain("b"));
+    assertTrue(filter.mightContain("a"));
+    filter.falsePositive();
+    BloomFilter rebuilt = new BloomFilter(20, filter);
+    FilterStatistics statistics = rebuilt.statistics();
+    assertEquals(0, statistics.getInsertions());
+    assertEquals(2, statistics.getQueries());
+    assertEquals(1, statistics.getDefiniteMisses());
+    assertEquals(1, statistics.getFalsePositives());
+    assertEquals(0.5, statistics.getObservedFalsePositiveRate(), 0);
+  }
+
+  @Test
+  public void testStatistics_Sizing() {
+    FilterStatistics statistics = new BloomFilter(1000).statistics();
+    // -n ln(0.01) / (ln 2)^2 bits and 7 hash functions for a 1% rate
+    assertEquals(9586, statistics.getBits());
+    assertEquals(7, statistics.getHashFunctions());
+    assertEquals(0, statistics.getExpectedFalsePositiveRate(), 0);
+    assertEquals(0, statistics.getObservedFalsePositiveRate(), 0);
+  }
+
+  @Test
+  public void testSearchByPhoneNumber() {
+    List<Contact> contacts = AddressBookTest.contacts(10);
+    AddressBook book = new AddressBook();
+    book.addAll(contacts);
+    assertEquals(Collections.singletonList(contacts.get(3)),
+        book.searchByPhoneNumber("212-998-3003"));
+    assertEquals(Collections.singletonList(contacts.get(3)),
+        book.searchByPhoneNumber("2129983003"));
+    assertTrue(book.searchByPhoneNumber("212-998-4003").isEmpty());
+    // Only exact numbers match
+    assertTrue(book.searchByPhoneNumber("998-3003").isEmpty());
+    assertTrue(book.searchByPhoneNumber("no digits").isEmpty());
+    assertTrue(book.searchByPhoneNumber(null).isEmpty());
+  }
+
+  @Test
+  public void testSearchByEmail_IgnoresCaseAndWhitespace() {
+    List<Contact> contacts = AddressBookTest.contacts(10);
+    AddressBook book = new AddressBook();
+    book.addAll(contacts);
+    // Every fifth contact is a Tim
+    assertEquals(Arrays.asList(contacts.get(0), contacts.get(5)),
+        book.searchByEmail("  TIM@nyu.edu "));
+    assertTrue(book.searchByEmail("tom@nyu.edu").isEmpty());
+    assertTrue(book.searchByEmail("   ").isEmpty());
+    assertTrue(book.searchByEmail(null).isEmpty());
+  }
+
+  @Test
+  public void testFilterStatistics_CountLookups() {
+    AddressBook book = new AddressBook();
+    book.addAll(AddressBookTest.contacts(10));
+    for (int i = 0; i < 100; i++) {
+      book.searchByEmail("absent" + i + "@nyu.edu");
+    }
+    book.searchByEmail("ann@nyu.edu");
+    FilterStatistics email = book.getEmailFilterStatistics();
+    assertEquals(101, email.getQueries());
+    assertEquals(100, email.getDefiniteMisses() + email.getFalsePositives());
+    // Emails repeat every five contacts, but every one is added to the filter
+    assertEquals(10, email.getInsertions());
+    FilterStatistics phone = book.getPhoneFilterStatistics();
+    assertEquals(10, phone.getInsertions());
+    assertEquals(0, phone.getQueries());
+  }
+
+  @Test
+  public void testFilters_RemovedContactsDroppedByCompaction() {
+    List<Contact> contacts = AddressBookTest.contacts(4);
+    AddressBook book = new AddressBook();
+    book.addAll(contacts);
+    assertTrue(book.removeContact(contacts.get(0).getid()));
+    // The number stays in the filter, so the lookup scans and finds nothing
+    assertTrue(book.searchByPhoneNumber("2129983000").isEmpty());
+    FilterStatistics statistics = book.getPhoneFilterStatistics();
+    assertEquals(1, statistics.getFalsePositives());
+    assertEquals(0, statistics.getDefiniteMisses());
+    // Two more removals make half of the slots tombstones and compact the book
+    assertTrue(book.removeContact(contacts.get(1).getid()));
+    assertTrue(book.removeContact(contacts.get(2).getid()));
+    assertTrue(book.searchByPhoneNumber("2129983000").isEmpty());
+    statistics = book.getPhoneFilterStatistics();
+    assertEquals(1, statistics.getInsertions());
+    assertEquals(2, statistics.getQueries());
+    assertEquals(1, statistics.getFalsePositives());
+    assertEquals(1, statistics.getDefiniteMisses());
+    assertEquals(Collections.singletonList(contacts.get(3)),
+        book.searchByPhoneNumber("2129983003"));
+  }
+
+  @Test
+  public void testFilters_GrowBeyondInitialCapacity() {
+    List<Contact> contacts = AddressBookTest.contacts(3000);
+    AddressBook book = new AddressBook();
+    for (Contact c : contacts) {
+      assertTrue(book.addContact(c));
+    }
+    FilterStatistics statistics = book.getPhoneFilterStatistics();
+    assertEquals(3000, statistics.getInsertions());
+    assertTrue(statistics.getExpectedFalsePositiveRate() < 0.02);
+    assertEquals(Collections.singletonList(contacts.get(2999)),
+        book.searchByPhoneNumber("212-998-5999"));
+  }
+
+  @Test
+  public void testFilters_BuiltForOpenedSnapshot() throws IOException {
+    List<Contact> contacts = AddressBookTest.contacts(10);
+    AddressBook book = new AddressBook();
+    book.addAll(contacts);
+    Path path = folder.getRoot().toPath().resolve("contacts.snapshot");
+    assertTrue(book.saveSnapshot(path));
+    AddressBook opened = AddressBook.openSnapshot(path);
+    List<Contact> matched = opened.searchByPhoneNumber("212-998-3007");
+    assertEquals(1, matched.size());
+    assertEquals(contacts.get(7).getid(), matched.get(0).getid());
+    assertTrue(opened.searchByEmail("tom@nyu.edu").isEmpty());
+    assertEquals(10, opened.getEmailFilterStatistics().getInsertions());
+  }
+}
@@ -0,0 +1,273 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+
+public class CompressionTest {
+  private final TemporaryFolder folder = new TemporaryFolder();
+  private Path directory;
+
+  @Before
+  public void createFolder() throws IOException {
+    folder.create();
+    directory = folder.getRoot().toPath();
+  }
+
+  @After
+  public void deleteFolder() {
+    folder.delete();
+  }
+
+  private static List<Contact> imported(Path path) {
+    AddressBook book = new AddressBook();
+    assertTrue(book.importContacts(path.toString()));
+    return book.searchContacts("");
+  }
+
+  private static byte[] random(int length) {
+    byte[] bytes = new byte[length];
+    new Random(42).nextBytes(bytes);
+    return bytes;
+  }
+
+  @Test
+  public void testOf_Extensions() {
+    assertEquals(Compression.GZIP, Compression.of(Paths.get("contacts.gz")));
+    assertEquals(Compression.GZIP, Compression.of(Paths.get("contacts.json.GZIP")));
+    assertEquals(Compression.DEFLATE, Compression.of(Paths.get("contacts.deflate")));
+    assertEquals(Compression.DEFLATE, Compression.of(Paths.get("contacts.zz")));
+    assertEquals(Compression.NONE, Compression.of(Paths.get("contacts.json")));
+    assertEquals(Compression.NONE, Compression.of(Paths.get("gz")));
+    assertTrue(Compression.GZIP.appendable());
+    assertTrue(Compression.NONE.appendable());
+    assertFalse(Compression.DEFLATE.appendable());
+  }
+
+  @Test
+  public void testExportContacts_GzipRoundTrip() throws IOException {
+    // Large enough to span several chunks of the compressor
+    List<Contact> contacts = AddressBookTest.contacts(2000);
+    AddressBook book = new AddressBook();
+    book.addAll(contacts);
+    Path path = directory.resolve("contacts.json.gz");
+    assertTrue(book.exportContacts(path.toString()));
+    byte[] file = Files.readAllBytes(path);
+    assertEquals((byte) 0x1f, file[0]);
+    assertEquals((byte) 0x8b, file[1]);
+    assertEquals(contacts, imported(path));
+  }
+
+  @Test
+  public void testExportContacts_DeflateRoundTrip() throws IOException {
+    List<Contact> contacts = AddressBookTest.contacts(2000);
+    AddressBook book = new AddressBook();
+    book.addAll(contacts);
+    Path path = directory.resolve("contacts.zz");
+    assertTrue(book.exportContacts(path.toString()));
+    // zlib header
+    assertEquals((byte) 0x78, Files.readAllBytes(path)[0]);
+    assertEquals(contacts, imported(path));
+  }
+
+  @Test
+  public void testExportContactsIncrementally_GzipAppendsMember() throws IOException {
+    List<Contact> contacts = AddressBookTest.contacts(30);
+    AddressBook book = new AddressBook();
+    book.addAll(contacts.subList(0, 20));
+    Path path = directory.resolve("contacts.gz");
+    assertTrue(book.exportContactsIncrementally(path.toString()));
+    byte[] first = Files.readAllBytes(path);
+    book.addAll(contacts.subList(20, 30));
+    assertTrue(book.exportContactsIncrementally(path.toString()));
+    byte[] appended = Files.readAllBytes(path);
+    // The first member is kept as it was
+    assertTrue(appended.length > first.length);
+    assertArrayEquals(first, Arrays.copyOf(appended, first.length));
+    assertEquals(contacts, imported(path));
+  }
+
+  @Test
+  public void testExportContactsIncrementally_DeflateIsRewritten() {
+    List<Contact> contacts = AddressBookTest.contacts(30);
+    AddressBook book = new AddressBook();
+    book.addAll(contacts.subList(0, 20));
+    Path path = directory.resolve("contacts.deflate");
+    assertTrue(book.exportContactsIncrementally(path.toString()));
+    book.addAll(contacts.subList(20, 30));
+    assertTrue(book.exportContactsIncrementally(path.toString()));
+    assertEquals(contacts, imported(path));
+  }
+
+  @Test
+  public void testImportContacts_CorruptGzipIsClosed() throws IOException {
+    Path path = directory.resolve("contacts.gz");
+    Files.write(path, "{\"name\":\"not gzip\"}\n".getBytes("UTF-8"));
+    // Open file descriptors can only be counted where /proc is available
+    File descriptors = new File("/proc/self/fd");
+    int before = descriptors.isDirectory() ? descriptors.list().length : 0;
+    for (int i = 0; i < 100; i++) {
+      assertFalse(new AddressBook().importContacts(path.toString()));
+    }
+    int after = descriptors.isDirectory() ? descriptors.list().length : 0;
+    assertTrue("Leaked " + (after - before) + " files", after - before < 10);
+  }
+
+  @Test
+  public void testImportContacts_CorruptDeflate() throws IOException {
+    Path path = directory.resolve("contacts.zz");
+    Files.write(path, "{\"name\":\"not zlib\"}\n".getBytes("UTF-8"));
+    assertFalse(new AddressBook().importContacts(path.toString()));
+  }
+
+  @Test
+  public void testCompressingOutputStream_RoundTrip() throws IOException {
+    byte[] data = random(300000);
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    CompressingOutputStream out =
+        new CompressingOutputStream(Compression.GZIP.compress(file));
+    out.write(data, 0, 1000);
+    out.write(data[1000]);
+    out.flush();
+    out.write(data, 1001, data.length - 1001);
+    out.close();
+    InputStream in = Compression.GZIP.decompress(new ByteArrayInputStream(file.toByteArray()));
+    ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = in.read(buffer)) > 0) {
+      decompressed.write(buffer, 0, read);
+    }
+    assertArrayEquals(data, decompressed.toByteArray());
+  }
+
+  @Test
+  public void testCompress_CloseKeepsUnderlyingStreamOpen() throws IOException {
+    for (Compression compression : Arrays.asList(Compression.GZIP, Compression.DEFLATE)) {
+      final boolean[] closed = new boolean[1];
+      ByteArrayOutputStream file = new ByteArrayOutputStream() {
+        @Override
+        public void close() {
+          closed[0] = true;
+        }
+      };
+      DeflaterOutputStream compressed = compression.compress(file);
+      compressed.write(random(1000));
+      compressed.close();
+      assertFalse(closed[0]);
+      InputStream in = compression.decompress(new ByteArrayInputStream(file.toByteArray()));
+      byte[] decompressed = new byte[1001];
+      int length = 0;
+      int read;
+      while ((read = in.read(decompressed, length, decompressed.length - length)) > 0) {
+        length += read;
+      }
+      in.close();
+      assertArrayEquals(random(1000), Arrays.copyOf(decompressed, length));
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testCompressingOutputStream_SinkClosedOnce() throws IOException {
+    final int[] closes = new int[1];
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("Disk full");
+      }
+    };
+    for (OutputStream file : Arrays.asList(new ByteArrayOutputStream(), broken)) {
+      closes[0] = 0;
+      DeflaterOutputStream sink = new DeflaterOutputStream(file) {
+        @Override
+        public void close() throws IOException {
+          closes[0]++;
+          super.close();
+        }
+      };
+      CompressingOutputStream out = new CompressingOutputStream(sink);
+      out.write(random(100));
+      try {
+        out.finish();
+      } catch (IOException failure) {
+        assertSame(broken, file);
+      }
+      // Releases the deflater whether compressing succeeded or not
+      assertEquals(1, closes[0]);
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testCompressingOutputStream_UncheckedFailureIsRethrown() throws IOException {
+    final IllegalStateException broken = new IllegalStateException("Broken sink");
+    OutputStream sink = new OutputStream() {
+      @Override
+      public void write(int b) {
+        throw broken;
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) {
+        throw broken;
+      }
+    };
+    CompressingOutputStream out = new CompressingOutputStream(new DeflaterOutputStream(sink));
+    byte[] data = random(1 << 20);
+    try {
+      // Far more than the queue holds, so a dead compressor would block the writer
+      for (int i = 0; i < 64; i++) {
+        out.write(data);
+      }
+      fail("The failure of the compressor must reach the writer");
+    } catch (IllegalStateException failure) {
+      assertSame(broken, failure);
+    }
+    try {
+      out.finish();
+      fail("The failure of the compressor must be rethrown by finish");
+    } catch (IllegalStateException failure) {
+      assertSame(broken, failure);
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testCompressingOutputStream_IOFailureIsRethrownByFinish() {
+    final IOException broken = new IOException("Disk full");
+    OutputStream sink = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw broken;
+      }
+    };
+    CompressingOutputStream out = new CompressingOutputStream(new DeflaterOutputStream(sink));
+    try {
+      out.write(random(100));
+      out.finish();
+      fail("The failure of the compressor must be rethrown by finish");
+    } catch (IOException failure) {
+      assertSame(broken, failure);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ConcurrentAddressBookTest {
+  private ConcurrentAddressBook book;
+
+  @Before
+  public void createAddressBook() {
+    book = new ConcurrentAddressBook();
+  }
+
+  @Test
+  public void testAddContact_SearchInInsertionOrder() {
+    List<Contact> contacts = AddressBookTest.contacts(40);
+    for (Contact c : contacts) {
+      assertTrue(book.addContact(c));
+    }
+    assertFalse(book.addContact(contacts.get(3)));
+    assertFalse(book.addContact(null));
+    assertEquals(contacts, book.searchContacts("NYU.EDU"));
+    assertEquals(Arrays.asList(contacts.get(1), contacts.get(3), contacts.get(6)),
+        book.searchContacts("ann").subList(0, 3));
+  }
+
+  @Test
+  public void testRemoveContact() {
+    List<Contact> contacts = AddressBookTest.contacts(5);
+    for (Contact c : contacts) {
+      assertTrue(book.addContact(c));
+    }
+    assertTrue(book.removeContact(contacts.get(2).getid()));
+    assertFalse(book.removeContact(contacts.get(2).getid()));
+    assertFalse(book.removeContact(UUID.randomUUID()));
+    assertFalse(book.removeContact(null));
+    assertNull(book.getContact(contacts.get(2).getid()));
+    assertNull(book.getContact(null));
+    assertEquals(contacts.get(3), book.getContact(contacts.get(3).getid()));
+    assertEquals(Arrays.asList(contacts.get(0), contacts.get(1), contacts.get(3),
+        contacts.get(4)), book.searchContacts(""));
+  }
+
+  @Test
+  public void testExportImport() throws IOException {
+    TemporaryFolder folder = new TemporaryFolder();
+    folder.create();
+    try {
+      Path path = folder.getRoot().toPath().resolve("contacts.json");
+      List<Contact> contacts = AddressBookTest.contacts(10);
+      for (Contact c : contacts) {
+        book.addContact(c);
+      }
+      assertTrue(book.exportContacts(path.toString()));
+      ConcurrentAddressBook imported = new ConcurrentAddressBook();
+      assertTrue(imported.addContact(contacts.get(0)));
+      assertTrue(imported.importContacts(path.toString()));
+      assertEquals(contacts, imported.searchContacts(""));
+      assertFalse(imported.importContacts(path.resolveSibling("missing.json").toString()));
+    } finally {
+      folder.delete();
+    }
+  }
+
+  @Test
+  public void testConcurrentWritersAndReaders() throws InterruptedException {
+    final int writers = 4;
+    final int perWriter = 500;
+    final AtomicBoolean failed = new AtomicBoolean();
+    final AtomicBoolean writing = new AtomicBoolean(true);
+    List<Thread> threads = new ArrayList<Thread>();
+    final List<List<Contact>> added = new ArrayList<List<Contact>>();
+    for (int w = 0; w < writers; w++) {
+      final List<Contact> own = new ArrayList<Contact>();
+      for (int i = 0; i < perWriter; i++) {
+        own.add(new Contact.Builder("Writer" + w + " " + i).build());
+      }
+      added.add(own);
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < own.size(); i++) {
+            if (!book.addContact(own.get(i))
+                || (i % 2 == 1 && !book.removeContact(own.get(i - 1).getid()))) {
+              failed.set(true);
+            }
+          }
+        }
+      }));
+    }
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (writing.get()) {
+          // Every view holds each contact at most once and no tombstone
+          List<Contact> seen = book.searchContacts("writer");
+          if (new HashSet<Contact>(seen).size() != seen.size()) {
+            failed.set(true);
+          }
+        }
+      }
+    });
+    reader.start();
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    writing.set(false);
+    reader.join();
+    assertFalse(failed.get());
+    List<Contact> remaining = book.searchContacts("writer");
+    assertEquals(writers * perWriter / 2, remaining.size());
+    for (List<Contact> own : added) {
+      // Each writer's contacts keep their insertion order
+      List<Contact> expected = new ArrayList<Contact>();
+      for (int i = 1; i < own.size(); i += 2) {
+        expected.add(own.get(i));
+      }
+      List<Contact> found = new ArrayList<Contact>(remaining);
+      found.retainAll(new HashSet<Contact>(expected));
+      assertEquals(expected, found);
+    }
+    assertEquals(Collections.emptyList(), book.searchContacts("missing"));
+  }
+}
@@ -0,0 +1,140 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ContactFilesTest {
+  private final TemporaryFolder folder = new TemporaryFolder();
+  private Path directory;
+
+  @Before
+  public void createFolder() throws IOException {
+    folder.create();
+    directory = folder.getRoot().toPath();
+  }
+
+  @After
+  public void deleteFolder() {
+    folder.delete();
+  }
+
+  private static AddressBook book(List<Contact> contacts) {
+    AddressBook book = new AddressBook();
+    assertEquals(contacts.size(), book.addAll(contacts));
+    return book;
+  }
+
+  private static List<Contact> imported(Path path) {
+    AddressBook book = new AddressBook();
+    assertTrue(book.importContacts(path.toString()));
+    return book.searchContacts("");
+  }
+
+  @Test
+  public void testExportContacts_RoundTrip() {
+    List<Contact> contacts = AddressBookTest.contacts(20);
+    Path path = directory.resolve("contacts.json");
+    assertTrue(book(contacts).exportContacts(path.toString()));
+    assertEquals(contacts, imported(path));
+  }
+
+  @Test
+  public void testExportContacts_ReplacesFile() throws IOException {
+    Path path = directory.resolve("contacts.json");
+    Files.write(path, "previous content, much longer than one contact ... ".getBytes(
+        StandardCharsets.UTF_8));
+    List<Contact> contacts = AddressBookTest.contacts(1);
+    assertTrue(book(contacts).exportContacts(path.toString()));
+    assertEquals(contacts, imported(path));
+    // No temporary file is left behind
+    assertEquals(Arrays.asList(path.getFileName().toString()),
+        Arrays.asList(directory.toFile().list()));
+  }
+
+  @Test
+  public void testExportContacts_FailureKeepsFile() throws IOException {
+    Path directoryAsTarget = Files.createDirectory(directory.resolve("contacts.json"));
+    assertFalse(book(AddressBookTest.contacts(2)).exportContacts(directoryAsTarget.toString()));
+    assertTrue(Files.isDirectory(directoryAsTarget));
+    assertEquals(Arrays.asList("contacts.json"), Arrays.asList(directory.toFile().list()));
+    assertFalse(new AddressBook().exportContacts(
+        directory.resolve("missing").resolve("contacts.json").toString()));
+  }
+
+  @Test
+  public void testImportContacts_MissingFile() {
+    assertFalse(new AddressBook().importContacts(directory.resolve("missing.json").toString()));
+  }
+
+  @Test
+  public void testExportContactsIncrementally_AppendsAdditions() throws IOException {
+    List<Contact> contacts = AddressBookTest.contacts(6);
+    Path path = directory.resolve("contacts.json");
+    AddressBook book = book(contacts.subList(0, 3));
+    assertTrue(book.exportContactsIncrementally(path.toString()));
+    long firstSize = Files.size(path);
+    book.addAll(contacts.subList(3, 6));
+    assertTrue(book.exportContactsIncrementally(path.toString()));
+    assertTrue(Files.size(path) > firstSize);
+    assertEquals(contacts, imported(path));
+    // Nothing changed, nothing is appended
+    long size = Files.size(path);
+    assertTrue(book.exportContactsIncrementally(path.toString()));
+    assertEquals(size, Files.size(path));
+  }
+
+  @Test
+  public void testExportContactsIncrementally_RewritesAfterRemoval() {
+    List<Contact> contacts = AddressBookTest.contacts(4);
+    Path path = directory.resolve("contacts.json");
+    AddressBook book = book(contacts);
+    assertTrue(book.exportContactsIncrementally(path.toString()));
+    assertTrue(book.removeContact(contacts.get(0).getid()));
+    assertTrue(book.exportContactsIncrementally(path.toString()));
+    assertEquals(contacts.subList(1, 4), imported(path));
+  }
+
+  @Test
+  public void testExportContactsIncrementally_RewritesChangedFile() throws IOException {
+    List<Contact> contacts = AddressBookTest.contacts(4);
+    Path path = directory.resolve("contacts.json");
+    AddressBook book = book(contacts.subList(0, 2));
+    assertTrue(book.exportContactsIncrementally(path.toString()));
+    Files.write(path, new byte[0]);
+    book.addAll(contacts.subList(2, 4));
+    assertTrue(book.exportContactsIncrementally(path.toString()));
+    assertEquals(contacts, imported(path));
+  }
+
+  @Test
+  public void testExportContactsIncrementally_OtherPath() {
+    List<Contact> contacts = AddressBookTest.contacts(2);
+    AddressBook book = book(contacts);
+    assertTrue(book.exportContactsIncrementally(directory.resolve("a.json").toString()));
+    assertTrue(book.exportContactsIncrementally(directory.resolve("b.json").toString()));
+    assertEquals(contacts, imported(directory.resolve("b.json")));
+  }
+
+  @Test
+  public void testAppend_SkipsNull() throws IOException {
+    List<Contact> contacts = new ArrayList<Contact>(AddressBookTest.contacts(2));
+    contacts.add(1, null);
+    Path path = directory.resolve("contacts.json");
+    ContactFiles.append(contacts, path);
+    assertEquals(Arrays.asList(contacts.get(0), contacts.get(2)), ContactFiles.read(path));
+  }
+}
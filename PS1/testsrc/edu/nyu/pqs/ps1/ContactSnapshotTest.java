@@ -0,0 +1,190 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+public class ContactSnapshotTest {
+  private final TemporaryFolder folder = new TemporaryFolder();
+  private Path path;
+
+  @Before
+  public void createFolder() throws IOException {
+    folder.create();
+    path = folder.getRoot().toPath().resolve("contacts.snapshot");
+  }
+
+  @After
+  public void deleteFolder() {
+    folder.delete();
+  }
+
+  @Test
+  public void testSaveOpen_RoundTrip() throws IOException {
+    List<Contact> contacts = new ArrayList<Contact>(AddressBookTest.contacts(10));
+    contacts.add(new Contact.Builder("J\u00fcrgen \u00d8stergaard \u4e2d\u6587")
+        .withNote("caf\u00e9").build());
+    contacts.add(Contact.restore(UUID.randomUUID(), "Nulls", null, null, null, null, null));
+    ContactSnapshot.save(contacts, path);
+    List<Contact> opened = ContactSnapshot.open(path);
+    assertEquals(contacts.size(), opened.size());
+    for (int i = 0; i < contacts.size(); i++) {
+      assertEquals(contacts.get(i).getid(), opened.get(i).getid());
+      assertEquals(contacts.get(i).rawData(), opened.get(i).rawData());
+    }
+    assertNull(opened.get(contacts.size() - 1).getEmail());
+  }
+
+  @Test
+  public void testSave_SkipsNull() throws IOException {
+    List<Contact> contacts = AddressBookTest.contacts(2);
+    ContactSnapshot.save(Arrays.asList(contacts.get(0), null, contacts.get(1)), path);
+    assertEquals(contacts, ContactSnapshot.open(path));
+  }
+
+  @Test
+  public void testSaveOpen_Empty() throws IOException {
+    ContactSnapshot.save(Collections.<Contact>emptyList(), path);
+    assertTrue(ContactSnapshot.open(path).isEmpty());
+  }
+
+  @Test(expected = IOException.class)
+  public void testOpen_NotASnapshot() throws IOException {
+    Files.write(path, "[{\"name\":\"Tim\"}]".getBytes(StandardCharsets.UTF_8));
+    ContactSnapshot.open(path);
+  }
+
+  @Test(expected = IOException.class)
+  public void testOpen_Truncated() throws IOException {
+    ContactSnapshot.save(AddressBookTest.contacts(10), path);
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, 40));
+    ContactSnapshot.open(path);
+  }
+
+  private void assertCorruptCount(int count) throws IOException {
+    ContactSnapshot.save(AddressBookTest.contacts(10), path);
+    byte[] bytes = Files.readAllBytes(path);
+    ByteBuffer.wrap(bytes).putInt(8, count);
+    Files.write(path, bytes);
+    try {
+      ContactSnapshot.open(path);
+      fail("A count of " + count + " must be rejected");
+    } catch (IOException corrupt) {
+      assertTrue(corrupt.getMessage(), corrupt.getMessage().contains(path.toString()));
+    }
+  }
+
+  @Test
+  public void testOpen_NegativeCount() throws IOException {
+    assertCorruptCount(-1);
+    assertCorruptCount(Integer.MIN_VALUE);
+  }
+
+  @Test
+  public void testOpen_CountExceedsFile() throws IOException {
+    assertCorruptCount(11000);
+    assertCorruptCount(Integer.MAX_VALUE);
+  }
+
+  @Test(timeout = 30000)
+  public void testLazyContactList_ConcurrentGetReturnsSameContact()
+      throws IOException, InterruptedException {
+    final int size = 2000;
+    ContactSnapshot.save(AddressBookTest.contacts(size), path);
+    final List<Contact> opened = ContactSnapshot.open(path);
+    final Contact[][] seen = new Contact[4][size];
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] readers = new Thread[seen.length];
+    for (int t = 0; t < readers.length; t++) {
+      final Contact[] read = seen[t];
+      readers[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException interrupted) {
+            return;
+          }
+          for (int i = 0; i < size; i++) {
+            read[i] = opened.get(i);
+          }
+        }
+      });
+      readers[t].start();
+    }
+    start.countDown();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    for (int i = 0; i < size; i++) {
+      for (Contact[] read : seen) {
+        assertSame(opened.get(i), read[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testLazyContactList_SetAndAdd() throws IOException {
+    List<Contact> contacts = AddressBookTest.contacts(3);
+    ContactSnapshot.save(contacts, path);
+    ContactSnapshot.LazyContactList opened =
+        (ContactSnapshot.LazyContactList) ContactSnapshot.open(path);
+    Contact added = AddressBookTest.contacts(4).get(3);
+    assertEquals(contacts.get(1), opened.set(1, null));
+    assertTrue(opened.add(added));
+    assertEquals(Arrays.asList(contacts.get(0), null, contacts.get(2), added), opened);
+    assertEquals(contacts.get(2).getid(), opened.id(2));
+    assertEquals(added.getid(), opened.id(3));
+    // Decoded contacts are kept
+    assertTrue(opened.get(0) == opened.get(0));
+    // The file is unchanged
+    assertEquals(contacts, ContactSnapshot.open(path));
+  }
+
+  @Test
+  public void testOpenSnapshot_AddressBook() throws IOException {
+    List<Contact> contacts = AddressBookTest.contacts(10);
+    AddressBook saved = new AddressBook();
+    saved.addAll(contacts);
+    assertTrue(saved.saveSnapshot(path));
+    AddressBook book = AddressBook.openSnapshot(path);
+    assertEquals(contacts, book.searchContacts("nyu.edu"));
+    assertEquals(contacts.get(4), book.getContact(contacts.get(4).getid()));
+    assertFalse(book.addContact(contacts.get(4)));
+    assertTrue(book.removeContact(contacts.get(4).getid()));
+    Contact added = AddressBookTest.contacts(11).get(10);
+    assertTrue(book.addContact(added));
+    assertEquals(added, book.getContact(added.getid()));
+    assertEquals(Collections.singletonList(contacts.get(0)),
+        book.searchByPhoneNumber(contacts.get(0).getphoneNumber()));
+    // Saving over the mapped snapshot
+    assertTrue(book.saveSnapshot(path));
+    assertEquals(book.searchContacts(""), AddressBook.openSnapshot(path).searchContacts(""));
+  }
+
+  @Test
+  public void testSaveSnapshot_Failure() {
+    assertFalse(new AddressBook().saveSnapshot(path.resolveSibling("missing").resolve("s")));
+  }
+}
@@ -0,0 +1,44 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+public class ContactTest {
+
+  @Test
+  public void testSearchKey_LowercasedRawDataCached() {
+    Contact tim = new Contact.Builder("Tim SMITH").withEmail("Tim@NYU.edu").build();
+    assertEquals(tim.rawData().toLowerCase(), tim.searchKey());
+    assertSame(tim.searchKey(), tim.searchKey());
+  }
+
+  @Test
+  public void testMatches() {
+    Contact tim = new Contact.Builder("Tim SMITH").withphoneNumber("(212) 998-3011")
+        .withNote("Met at Courant").build();
+    assertTrue(tim.matches("smith"));
+    assertTrue(tim.matches("2129983011"));
+    assertTrue(tim.matches("courant"));
+    assertTrue(tim.matches(""));
+    // Keywords must already be lowercased
+    assertFalse(tim.matches("SMITH"));
+    assertFalse(tim.matches("998-3011"));
+  }
+
+  @Test
+  public void testSearchKey_NotSerialized() {
+    Contact tim = new Contact.Builder("Tim").build();
+    tim.searchKey();
+    String json = new Gson().toJson(tim);
+    assertFalse(json, json.contains("searchKey"));
+    Contact parsed = new Gson().fromJson(json, Contact.class);
+    assertEquals(tim, parsed);
+    assertTrue(parsed.matches("tim"));
+  }
+}
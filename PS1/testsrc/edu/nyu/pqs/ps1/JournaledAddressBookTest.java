@@ -0,0 +1,267 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class JournaledAddressBookTest {
+  private final TemporaryFolder folder = new TemporaryFolder();
+  private Path directory;
+  private JournaledAddressBook book;
+
+  @Before
+  public void openAddressBook() throws IOException {
+    folder.create();
+    directory = folder.getRoot().toPath().resolve("book");
+    book = JournaledAddressBook.open(directory);
+  }
+
+  @After
+  public void closeAddressBook() throws IOException {
+    book.close();
+    folder.delete();
+  }
+
+  private static Contact contact(String name) {
+    return new Contact.Builder(name).withphoneNumber("212-998-3011")
+        .withEmail(name.toLowerCase() + "@nyu.edu").build();
+  }
+
+  private void reopen() throws IOException {
+    book.close();
+    book = JournaledAddressBook.open(directory);
+  }
+
+  private List<String> files() {
+    String[] names = directory.toFile().list();
+    Arrays.sort(names);
+    return Arrays.asList(names);
+  }
+
+  @Test
+  public void testReopen_ReplaysAdditionsAndRemovals() throws IOException {
+    Contact tim = contact("Tim");
+    Contact ann = contact("Ann");
+    Contact bob = contact("Bob");
+    assertTrue(book.addContact(tim));
+    assertTrue(book.addContact(ann));
+    assertTrue(book.addContact(bob));
+    assertTrue(book.removeContact(ann.getid()));
+    reopen();
+    assertEquals(tim, book.getContact(tim.getid()));
+    assertNull(book.getContact(ann.getid()));
+    assertEquals(bob, book.getContact(bob.getid()));
+    assertEquals(Collections.singletonList(bob), book.searchContacts("bob"));
+  }
+
+  @Test
+  public void testReopen_Empty() throws IOException {
+    reopen();
+    assertTrue(book.searchContacts("tim").isEmpty());
+  }
+
+  @Test
+  public void testAddContact_DuplicateAndNull() throws IOException {
+    Contact tim = contact("Tim");
+    assertTrue(book.addContact(tim));
+    assertFalse(book.addContact(tim));
+    assertFalse(book.addContact(null));
+    assertFalse(book.removeContact(contact("Ann").getid()));
+    reopen();
+    assertEquals(1, book.searchContacts("tim").size());
+  }
+
+  @Test
+  public void testReopen_TornTailDiscarded() throws IOException {
+    Contact tim = contact("Tim");
+    assertTrue(book.addContact(tim));
+    book.close();
+    // Header of an ADD record whose payload never reached the disk
+    Files.write(directory.resolve("contacts-0.log"), new byte[] {0, 0, 0, 100, 1, '{'},
+        StandardOpenOption.APPEND);
+    book = JournaledAddressBook.open(directory);
+    assertEquals(tim, book.getContact(tim.getid()));
+    // The torn record is cut off, so records appended afterwards are replayed
+    Contact ann = contact("Ann");
+    assertTrue(book.addContact(ann));
+    reopen();
+    assertEquals(tim, book.getContact(tim.getid()));
+    assertEquals(ann, book.getContact(ann.getid()));
+  }
+
+  @Test
+  public void testReopen_CorruptTailDiscarded() throws IOException {
+    Contact tim = contact("Tim");
+    Contact ann = contact("Ann");
+    assertTrue(book.addContact(tim));
+    assertTrue(book.addContact(ann));
+    book.close();
+    try (RandomAccessFile log = new RandomAccessFile(
+        directory.resolve("contacts-0.log").toFile(), "rw")) {
+      // Flips a bit of the CRC of the last record
+      log.seek(log.length() - 1);
+      int last = log.read();
+      log.seek(log.length() - 1);
+      log.write(last ^ 1);
+    }
+    book = JournaledAddressBook.open(directory);
+    assertEquals(tim, book.getContact(tim.getid()));
+    assertNull(book.getContact(ann.getid()));
+    Contact bob = contact("Bob");
+    assertTrue(book.addContact(bob));
+    reopen();
+    assertEquals(tim, book.getContact(tim.getid()));
+    assertNull(book.getContact(ann.getid()));
+    assertEquals(bob, book.getContact(bob.getid()));
+  }
+
+  @Test
+  public void testCompact_StartsNewGeneration() throws IOException {
+    Contact tim = contact("Tim");
+    Contact ann = contact("Ann");
+    assertTrue(book.addContact(tim));
+    assertTrue(book.addContact(ann));
+    assertTrue(book.compact());
+    assertEquals(Arrays.asList("contacts-1.log", "contacts-1.snapshot"), files());
+    assertTrue(book.removeContact(tim.getid()));
+    reopen();
+    assertNull(book.getContact(tim.getid()));
+    assertEquals(ann, book.getContact(ann.getid()));
+  }
+
+  @Test
+  public void testOpenAndCompact_DeleteStaleSnapshotTemps() throws IOException {
+    Contact tim = contact("Tim");
+    assertTrue(book.addContact(tim));
+    List<String> before = files();
+    // Left behind by snapshots which crashed while being written
+    Files.createFile(directory.resolve("contacts-0.snapshot123.tmp"));
+    Files.createFile(directory.resolve("contacts-1.snapshot456.tmp"));
+    Files.createFile(directory.resolve("notes.tmp"));
+    reopen();
+    List<String> expected = new ArrayList<String>(before);
+    expected.add("notes.tmp");
+    Collections.sort(expected);
+    assertEquals(expected, files());
+    assertEquals(tim, book.getContact(tim.getid()));
+
+    Files.createFile(directory.resolve("contacts-1.snapshot789.tmp"));
+    assertTrue(book.compact());
+    assertEquals(Arrays.asList("contacts-1.log", "contacts-1.snapshot", "notes.tmp"), files());
+  }
+
+  @Test
+  public void testCompact_TriggeredByThreshold() throws IOException {
+    book.close();
+    book = JournaledAddressBook.open(directory, 1);
+    List<Contact> added = new ArrayList<Contact>();
+    for (int i = 0; i < 10; i++) {
+      Contact c = contact("Contact" + i);
+      assertTrue(book.addContact(c));
+      added.add(c);
+    }
+    // Every record outgrows the threshold, so only the newest generation is left
+    assertEquals(Arrays.asList("contacts-10.log", "contacts-10.snapshot"), files());
+    reopen();
+    for (Contact c : added) {
+      assertEquals(c, book.getContact(c.getid()));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpen_NonPositiveThreshold() throws IOException {
+    JournaledAddressBook.open(directory, 0);
+  }
+
+  @Test
+  public void testAddContact_TooLargeIsRefused() throws IOException {
+    char[] note = new char[(1 << 24) + 1];
+    Arrays.fill(note, 'x');
+    Contact huge = new Contact.Builder("Huge").withNote(new String(note)).build();
+    assertFalse(book.addContact(huge));
+    assertNull(book.getContact(huge.getid()));
+    // The book is still usable
+    Contact tim = contact("Tim");
+    assertTrue(book.addContact(tim));
+    reopen();
+    assertNull(book.getContact(huge.getid()));
+    assertEquals(tim, book.getContact(tim.getid()));
+  }
+
+  @Test
+  public void testAddContact_InterruptedThread() throws IOException {
+    Contact tim = contact("Tim");
+    Thread.currentThread().interrupt();
+    try {
+      assertTrue(book.addContact(tim));
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+    // The interrupt neither closed the log nor marked the book as failed
+    Contact ann = contact("Ann");
+    assertTrue(book.addContact(ann));
+    reopen();
+    assertEquals(tim, book.getContact(tim.getid()));
+    assertEquals(ann, book.getContact(ann.getid()));
+  }
+
+  @Test
+  public void testAddContact_ConcurrentGroupCommit() throws Exception {
+    final int threads = 4;
+    final int perThread = 50;
+    final List<Contact> added = Collections.synchronizedList(new ArrayList<Contact>());
+    final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+    List<Thread> workers = new ArrayList<Thread>();
+    for (int t = 0; t < threads; t++) {
+      final int thread = t;
+      workers.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < perThread; i++) {
+              Contact c = contact("Thread" + thread + "Contact" + i);
+              assertTrue(book.addContact(c));
+              added.add(c);
+              if (i % 5 == 0) {
+                assertTrue(book.removeContact(c.getid()));
+                added.remove(c);
+              }
+            }
+          } catch (Throwable failure) {
+            failures.add(failure);
+          }
+        }
+      }));
+    }
+    for (Thread worker : workers) {
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    assertEquals(Collections.emptyList(), failures);
+    assertEquals(threads * (perThread - perThread / 5), added.size());
+    reopen();
+    for (Contact c : added) {
+      assertEquals(c, book.getContact(c.getid()));
+    }
+    assertEquals(added.size(), book.searchContacts("nyu.edu").size());
+  }
+}
@@ -0,0 +1,95 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelImporterTest {
+  private final TemporaryFolder folder = new TemporaryFolder();
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @Before
+  public void createFolder() throws IOException {
+    folder.create();
+  }
+
+  @After
+  public void deleteFolder() {
+    pool.shutdown();
+    folder.delete();
+  }
+
+  private Path write(List<Contact> contacts, String separator) throws IOException {
+    Gson gson = new Gson();
+    StringBuilder lines = new StringBuilder();
+    for (Contact c : contacts) {
+      lines.append(gson.toJson(c)).append(separator);
+    }
+    Path path = folder.newFile().toPath();
+    Files.write(path, lines.toString().getBytes(StandardCharsets.UTF_8));
+    return path;
+  }
+
+  @Test
+  public void testParse_SingleChunk() throws IOException {
+    List<Contact> contacts = AddressBookTest.contacts(10);
+    assertEquals(contacts, new ParallelImporter(pool).parse(write(contacts, "\n")));
+  }
+
+  @Test
+  public void testParse_ManyChunksInFileOrder() throws IOException {
+    // Several megabytes, so the file is split into ranges parsed in parallel
+    List<Contact> contacts = AddressBookTest.contacts(30000);
+    Path path = write(contacts, "\n");
+    assertEquals(contacts, new ParallelImporter(pool).parse(path));
+  }
+
+  @Test
+  public void testParse_EmptyLinesAndMissingFinalLineFeed() throws IOException {
+    List<Contact> contacts = AddressBookTest.contacts(3);
+    Path path = write(contacts, "\n\n");
+    Files.write(path, "\n".getBytes(StandardCharsets.UTF_8));
+    assertEquals(new ArrayList<Contact>(), new ParallelImporter(pool).parse(path));
+    path = write(contacts, "\r\n");
+    assertEquals(contacts, new ParallelImporter(pool).parse(path));
+    String withoutLastLineFeed = new String(Files.readAllBytes(write(contacts, "\n")),
+        StandardCharsets.UTF_8).trim();
+    Files.write(path, withoutLastLineFeed.getBytes(StandardCharsets.UTF_8));
+    assertEquals(contacts, new ParallelImporter(pool).parse(path));
+  }
+
+  @Test(expected = NoSuchFileException.class)
+  public void testParse_MissingFile() throws IOException {
+    new ParallelImporter(pool).parse(folder.getRoot().toPath().resolve("missing.json"));
+  }
+
+  @Test
+  public void testImportContactsInParallel() throws IOException {
+    List<Contact> contacts = AddressBookTest.contacts(100);
+    Path path = write(contacts, "\n");
+    AddressBook book = new AddressBook(true);
+    assertTrue(book.addContact(contacts.get(0)));
+    ImportStatistics statistics = book.importContactsInParallel(path.toString(), pool);
+    assertEquals(100, statistics.getRecords());
+    assertEquals(Files.size(path), statistics.getBytes());
+    // The contact already present isn't added again
+    assertEquals(contacts, book.searchContacts("nyu.edu"));
+    assertNull(book.importContactsInParallel(path.resolveSibling("missing.json").toString()));
+  }
+}
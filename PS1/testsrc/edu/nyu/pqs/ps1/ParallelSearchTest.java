@@ -0,0 +1,72 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelSearchTest {
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @After
+  public void shutdownPool() {
+    pool.shutdown();
+  }
+
+  /**
+   * Returns the contacts matching lowerKeyword, scanned sequentially
+   */
+  private static List<Contact> scan(List<Contact> contacts, String lowerKeyword) {
+    List<Contact> matched = new ArrayList<Contact>();
+    for (Contact c : contacts) {
+      if (c != null && c.matches(lowerKeyword)) {
+        matched.add(c);
+      }
+    }
+    return matched;
+  }
+
+  @Test
+  public void testSearch_SplitInRangesKeepsListOrder() {
+    List<Contact> contacts = new ArrayList<Contact>(
+        AddressBookTest.contacts(3 * ParallelSearch.SEQUENTIAL_THRESHOLD + 17));
+    for (int i = 0; i < contacts.size(); i += 3) {
+      contacts.set(i, null);
+    }
+    for (String keyword : new String[] {"tim", "anna bell 4", "nyu.edu", "missing", ""}) {
+      assertEquals(keyword, scan(contacts, keyword),
+          new ParallelSearch(pool).search(contacts, keyword));
+    }
+  }
+
+  @Test
+  public void testSearch_BelowThreshold() {
+    List<Contact> contacts = new ArrayList<Contact>(AddressBookTest.contacts(10));
+    contacts.add(null);
+    assertEquals(scan(contacts, "bob"), new ParallelSearch(pool).search(contacts, "bob"));
+    assertTrue(new ParallelSearch(pool).search(new ArrayList<Contact>(), "bob").isEmpty());
+  }
+
+  @Test
+  public void testSearchContactsInParallel_MatchesSearchContacts() {
+    List<Contact> contacts = AddressBookTest.contacts(ParallelSearch.SEQUENTIAL_THRESHOLD + 100);
+    for (boolean indexed : new boolean[] {false, true}) {
+      AddressBook book = new AddressBook(indexed);
+      book.addAll(contacts);
+      for (int i = 0; i < 100; i++) {
+        assertTrue(book.removeContact(contacts.get(7 * i).getid()));
+      }
+      for (String keyword : Arrays.asList("TIM", "ann", "note 123", "missing")) {
+        assertEquals(keyword, book.searchContacts(keyword),
+            book.searchContactsInParallel(keyword, pool));
+      }
+      assertEquals(book.searchContacts("bob"), book.searchContactsInParallel("bob"));
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class PhoneIndexTest {
+
+  private static Contact withPhone(String phoneNumber) {
+    return new Contact.Builder("Phone " + phoneNumber).withphoneNumber(phoneNumber).build();
+  }
+
+  /**
+   * Contacts of equal fields are equal, so index results are compared by identity
+   */
+  private static Set<Contact> set(List<Contact> contacts) {
+    Set<Contact> set = identitySet();
+    set.addAll(contacts);
+    assertEquals("duplicates in " + contacts, contacts.size(), set.size());
+    return set;
+  }
+
+  private static Set<Contact> identitySet() {
+    return Collections.newSetFromMap(new IdentityHashMap<Contact, Boolean>());
+  }
+
+  @Test
+  public void testStartingWith() {
+    Contact nyc = withPhone("(212) 998-3011");
+    Contact other = withPhone("212.555.0000");
+    Contact bay = withPhone("415 555 1234");
+    PhoneIndex index = new PhoneIndex();
+    index.addAll(Arrays.asList(nyc, other, bay));
+    assertEquals(set(Arrays.asList(nyc, other)), set(index.startingWith("+(212)")));
+    assertEquals(Collections.singletonList(bay), index.startingWith("4155551234"));
+    assertTrue(index.startingWith("41555512345").isEmpty());
+    assertTrue(index.startingWith("999").isEmpty());
+    assertTrue(index.startingWith("no digits").isEmpty());
+  }
+
+  @Test
+  public void testContaining() {
+    Contact nyc = withPhone("(212) 998-3011");
+    Contact bay = withPhone("415 555 1234");
+    Contact repeated = withPhone("555-5555");
+    PhoneIndex index = new PhoneIndex();
+    index.add(nyc);
+    index.add(bay);
+    index.add(repeated);
+    assertEquals(set(Arrays.asList(bay, repeated)), set(index.containing("555")));
+    assertEquals(Collections.singletonList(nyc), index.containing("98-30"));
+    assertEquals(Collections.singletonList(nyc), index.containing("2129983011"));
+    assertTrue(index.containing("").isEmpty());
+  }
+
+  @Test
+  public void testRemove() {
+    Contact nyc = withPhone("(212) 998-3011");
+    Contact copy = withPhone("(212) 998-3011");
+    Contact none = withPhone("none");
+    PhoneIndex index = new PhoneIndex();
+    index.addAll(Arrays.asList(nyc, copy, none));
+    index.remove(nyc);
+    index.remove(none);
+    assertEquals(Collections.singletonList(copy), index.startingWith("212"));
+    assertEquals(Collections.singletonList(copy), index.containing("3011"));
+  }
+
+  @Test
+  public void testLongNumbersBeyondKeyDigits() {
+    Contact long1 = withPhone("1234567890123456789012");
+    Contact long2 = withPhone("1234567890123456789099");
+    PhoneIndex index = new PhoneIndex();
+    index.addAll(Arrays.asList(long1, long2));
+    assertEquals(set(Arrays.asList(long1, long2)), set(index.startingWith("1234567890123456789")));
+    assertEquals(Collections.singletonList(long1), index.startingWith("123456789012345678901"));
+    assertEquals(Collections.singletonList(long2),
+        index.containing("2345678901234567890 99"));
+  }
+
+  @Test
+  public void testMatchesScan() {
+    Random random = new Random(42);
+    PhoneIndex index = new PhoneIndex();
+    List<Contact> contacts = new ArrayList<Contact>();
+    for (int i = 0; i < 2000; i++) {
+      StringBuilder number = new StringBuilder();
+      for (int d = random.nextInt(12); d > 0; d--) {
+        number.append((char) ('0' + random.nextInt(4)));
+      }
+      Contact c = withPhone(number.toString());
+      contacts.add(c);
+      // Mixes single additions, which go through the unsorted buffer, with merges
+      index.add(c);
+      if (i % 7 == 0) {
+        index.remove(contacts.get(random.nextInt(contacts.size())));
+      }
+    }
+    for (int i = 0; i < 200; i++) {
+      String query = Integer.toString(random.nextInt(4000), 4);
+      Set<Contact> prefixed = identitySet();
+      Set<Contact> containing = identitySet();
+      for (Contact c : contacts) {
+        String digits = PhoneIndex.digitsOf(c.getphoneNumber());
+        // Removed contacts are left out
+        if (set(index.startingWith(digits)).contains(c)) {
+          if (digits.startsWith(query)) {
+            prefixed.add(c);
+          }
+          if (digits.contains(query)) {
+            containing.add(c);
+          }
+        }
+      }
+      assertEquals(query, prefixed, set(index.startingWith(query)));
+      assertEquals(query, containing, set(index.containing(query)));
+    }
+  }
+
+  @Test
+  public void testAddressBook_InsertionOrder() {
+    List<Contact> contacts = AddressBookTest.contacts(30);
+    AddressBook book = new AddressBook();
+    book.addAll(contacts);
+    assertEquals(contacts, book.searchByPhonePrefix("212-998"));
+    assertEquals(Arrays.asList(contacts.get(1), contacts.get(10), contacts.get(11),
+        contacts.get(12), contacts.get(13), contacts.get(14), contacts.get(15),
+        contacts.get(16), contacts.get(17), contacts.get(18), contacts.get(19)),
+        book.searchByPhoneSubstring("01"));
+    assertTrue(book.removeContact(contacts.get(0).getid()));
+    assertEquals(contacts.subList(1, 30), book.searchByPhonePrefix("212"));
+    assertEquals(Collections.emptyList(), book.searchByPhoneSubstring("x"));
+  }
+}
@@ -0,0 +1,137 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class SearchPageTest {
+
+  private static AddressBook book(boolean searchIndexEnabled, List<Contact> contacts) {
+    AddressBook book = new AddressBook(searchIndexEnabled);
+    book.addAll(contacts);
+    return book;
+  }
+
+  /**
+   * Returns all contacts matching keyword, collected page by page
+   */
+  private static List<Contact> allPages(AddressBook book, String keyword, int pageSize) {
+    SearchPage page = book.searchContacts(keyword, pageSize);
+    List<Contact> all = new ArrayList<Contact>(page.getContacts());
+    while (page.hasNext()) {
+      assertEquals(pageSize, page.getContacts().size());
+      page = book.searchContacts(page.getNextCursor(), pageSize);
+      all.addAll(page.getContacts());
+    }
+    assertNull(page.getNextCursor());
+    return all;
+  }
+
+  @Test
+  public void testPages_MatchSearchContacts() {
+    List<Contact> contacts = AddressBookTest.contacts(47);
+    for (boolean indexed : new boolean[] {false, true}) {
+      AddressBook book = book(indexed, contacts);
+      for (String keyword : new String[] {"tim", "nyu.edu", "an", "missing", ""}) {
+        for (int pageSize : new int[] {1, 3, 10, 47, 100}) {
+          assertEquals(keyword + " " + pageSize, book.searchContacts(keyword),
+              allPages(book, keyword, pageSize));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPages_ExactlyFullLastPage() {
+    AddressBook book = book(true, AddressBookTest.contacts(10));
+    SearchPage page = book.searchContacts("nyu.edu", 10);
+    assertTrue(page.hasNext());
+    page = book.searchContacts(page.getNextCursor(), 10);
+    assertTrue(page.getContacts().isEmpty());
+    assertFalse(page.hasNext());
+  }
+
+  @Test
+  public void testCursor_SeesAdditionsAndRemovals() {
+    List<Contact> contacts = AddressBookTest.contacts(20);
+    for (boolean indexed : new boolean[] {false, true}) {
+      AddressBook book = book(indexed, contacts.subList(0, 10));
+      SearchPage page = book.searchContacts("nyu.edu", 4);
+      assertEquals(contacts.subList(0, 4), page.getContacts());
+      // Removes a contact of a later page and adds new ones
+      assertTrue(book.removeContact(contacts.get(5).getid()));
+      book.addAll(contacts.subList(10, 12));
+      page = book.searchContacts(page.getNextCursor(), 4);
+      assertEquals(Arrays.asList(contacts.get(4), contacts.get(6), contacts.get(7),
+          contacts.get(8)), page.getContacts());
+      // A removed and added again contact comes last
+      assertTrue(book.removeContact(contacts.get(9).getid()));
+      assertTrue(book.addContact(contacts.get(9)));
+      page = book.searchContacts(page.getNextCursor(), 4);
+      assertEquals(Arrays.asList(contacts.get(10), contacts.get(11), contacts.get(9)),
+          page.getContacts());
+      assertFalse(page.hasNext());
+    }
+  }
+
+  @Test
+  public void testCursor_AfterCompaction() {
+    List<Contact> contacts = AddressBookTest.contacts(10);
+    AddressBook book = book(true, contacts);
+    SearchPage page = book.searchContacts("nyu.edu", 6);
+    // Removing more than half of the contacts compacts the slots
+    for (int i = 0; i < 5; i++) {
+      assertTrue(book.removeContact(contacts.get(i).getid()));
+    }
+    assertTrue(book.removeContact(contacts.get(6).getid()));
+    page = book.searchContacts(page.getNextCursor(), 6);
+    assertEquals(Arrays.asList(contacts.get(7), contacts.get(8), contacts.get(9)),
+        page.getContacts());
+  }
+
+  @Test(expected = ConcurrentModificationException.class)
+  public void testCursor_LastContactRemovedAndCompacted() {
+    List<Contact> contacts = AddressBookTest.contacts(4);
+    AddressBook book = book(false, contacts);
+    SearchPage page = book.searchContacts("nyu.edu", 2);
+    assertTrue(book.removeContact(contacts.get(1).getid()));
+    assertTrue(book.removeContact(contacts.get(0).getid()));
+    assertTrue(book.removeContact(contacts.get(2).getid()));
+    book.searchContacts(page.getNextCursor(), 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCursor_OtherAddressBook() {
+    List<Contact> contacts = AddressBookTest.contacts(4);
+    SearchPage page = book(false, contacts).searchContacts("nyu.edu", 2);
+    book(false, contacts).searchContacts(page.getNextCursor(), 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSearchContacts_NonPositivePageSize() {
+    new AddressBook().searchContacts("tim", 0);
+  }
+
+  @Test
+  public void testSearchContactsLazily() {
+    List<Contact> contacts = AddressBookTest.contacts(30);
+    for (boolean indexed : new boolean[] {false, true}) {
+      AddressBook book = book(indexed, contacts);
+      assertTrue(book.removeContact(contacts.get(0).getid()));
+      assertEquals(book.searchContacts("tim"),
+          book.searchContactsLazily("TIM").collect(Collectors.toList()));
+      assertEquals(contacts.subList(1, 4),
+          book.searchContactsLazily("nyu.edu").limit(3).collect(Collectors.toList()));
+      assertFalse(book.searchContactsLazily("missing").findAny().isPresent());
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class SortedNameIndexTest {
+
+  private static Contact contact(String name) {
+    return new Contact.Builder(name).build();
+  }
+
+  private static List<String> names(Iterable<Contact> contacts) {
+    List<String> names = new ArrayList<String>();
+    for (Contact c : contacts) {
+      names.add(c.getName());
+    }
+    return names;
+  }
+
+  private static AddressBook book(String... names) {
+    AddressBook book = new AddressBook();
+    for (String name : names) {
+      assertTrue(book.addContact(contact(name)));
+    }
+    return book;
+  }
+
+  @Test
+  public void testAutocompleteName_IgnoresCase() {
+    AddressBook book = book("Mary", "bob", "Mark", "max", "Alice", "Marty");
+    assertEquals(Arrays.asList("Mark", "Marty", "Mary"), names(book.autocompleteName("MAR", 10)));
+    assertEquals(Arrays.asList("Mark", "Marty", "Mary", "max"),
+        names(book.autocompleteName("m", 10)));
+    assertTrue(book.autocompleteName("z", 10).isEmpty());
+  }
+
+  @Test
+  public void testAutocompleteName_Limit() {
+    AddressBook book = book("Mary", "Mark", "Max", "Marty");
+    assertEquals(Arrays.asList("Mark", "Marty"), names(book.autocompleteName("Ma", 2)));
+    assertEquals(Arrays.asList("Mark", "Marty", "Mary", "Max"),
+        names(book.autocompleteName("", 10)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAutocompleteName_InvalidLimit() {
+    book("Mary").autocompleteName("M", 0);
+  }
+
+  @Test
+  public void testAutocompleteName_EqualNamesInInsertionOrder() {
+    Contact first = contact("Ann");
+    Contact second = contact("ann");
+    Contact third = contact("ANN");
+    AddressBook book = new AddressBook();
+    book.addContact(first);
+    book.addContact(contact("Anna"));
+    book.addContact(second);
+    book.addContact(third);
+    List<Contact> matched = book.autocompleteName("ann", 10);
+    assertEquals(4, matched.size());
+    assertSame(first, matched.get(0));
+    assertSame(second, matched.get(1));
+    assertSame(third, matched.get(2));
+    assertEquals("Anna", matched.get(3).getName());
+  }
+
+  @Test
+  public void testSearchByNameRange() {
+    AddressBook book = book("Nina", "adam", "Mike", "Zoe", "Bob", "n");
+    assertEquals(Arrays.asList("adam", "Bob", "Mike"), names(book.searchByNameRange("a", "n")));
+    assertEquals(Arrays.asList("Mike", "n", "Nina"), names(book.searchByNameRange("M", "O")));
+    assertTrue(book.searchByNameRange("c", "c").isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSearchByNameRange_Reversed() {
+    book("Mike").searchByNameRange("n", "a");
+  }
+
+  @Test
+  public void testContactsByName() {
+    AddressBook book = book("Zoe", "bob", "Ann", "Bob");
+    assertEquals(Arrays.asList("Ann", "bob", "Bob", "Zoe"), names(book.contactsByName()));
+    Iterator<Contact> empty = new AddressBook().contactsByName().iterator();
+    assertFalse(empty.hasNext());
+    try {
+      empty.next();
+      fail("next must throw at the end");
+    } catch (NoSuchElementException expected) {
+      return;
+    }
+  }
+
+  @Test
+  public void testIndex_KeptUpToDate() {
+    Contact bob = contact("Bob");
+    AddressBook book = book("Ann", "Zoe");
+    assertTrue(book.addContact(bob));
+    // Builds the index, later changes are applied to it
+    assertEquals(Arrays.asList("Ann", "Bob", "Zoe"), names(book.contactsByName()));
+    assertTrue(book.addContact(contact("Carl")));
+    assertTrue(book.removeContact(bob.getid()));
+    assertEquals(Arrays.asList("Ann", "Carl", "Zoe"), names(book.contactsByName()));
+    assertTrue(book.autocompleteName("b", 10).isEmpty());
+    book.addAll(Arrays.asList(contact("Beth"), contact("Al")));
+    assertEquals(Arrays.asList("Al", "Ann", "Beth", "Carl", "Zoe"),
+        names(book.contactsByName()));
+  }
+
+  @Test
+  public void testRemove_OnlyThatContact() {
+    SortedNameIndex index = new SortedNameIndex();
+    Contact first = contact("Tim");
+    Contact second = contact("Tim");
+    index.add(first);
+    index.add(second);
+    // Equal contacts are told apart by identity
+    index.remove(second);
+    List<Contact> left = index.startingWith("tim", 10);
+    assertEquals(1, left.size());
+    assertSame(first, left.get(0));
+    index.remove(first);
+    assertFalse(index.iterator().hasNext());
+    // Removing an unknown contact does nothing
+    index.remove(contact("Ann"));
+    assertTrue(index.between("a", "z").isEmpty());
+  }
+
+  @Test
+  public void testIndex_AgreesWithScan() {
+    List<Contact> contacts = AddressBookTest.contacts(200);
+    AddressBook book = new AddressBook();
+    book.addAll(contacts);
+    for (int i = 0; i < contacts.size(); i += 3) {
+      assertTrue(book.removeContact(contacts.get(i).getid()));
+    }
+    List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < contacts.size(); i++) {
+      if (i % 3 != 0 && contacts.get(i).getName().toLowerCase().startsWith("an")) {
+        expected.add(contacts.get(i).getName().toLowerCase());
+      }
+    }
+    Collections.sort(expected);
+    List<String> actual = new ArrayList<String>();
+    for (Contact c : book.autocompleteName("An", 1000)) {
+      actual.add(c.getName().toLowerCase());
+    }
+    assertEquals(expected, actual);
+  }
+}
@@ -0,0 +1,70 @@
+package edu.nyu.pqs.ps1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+public class TrigramIndexTest {
+  private TrigramIndex index;
+  private Contact tim;
+  private Contact ann;
+
+  @Before
+  public void createIndex() {
+    index = new TrigramIndex();
+    tim = new Contact.Builder("Tim Smith").withEmail("tim@nyu.edu").build();
+    ann = new Contact.Builder("Ann Smithers").withEmail("ann@gmail.com").build();
+    index.add(tim);
+    index.add(ann);
+  }
+
+  @Test
+  public void testCandidates_SharedTrigrams() {
+    assertEquals(new HashSet<Contact>(Arrays.asList(tim, ann)),
+        new HashSet<Contact>(index.candidates("smith")));
+    assertEquals(Collections.singletonList(tim), index.candidates("nyu.edu"));
+  }
+
+  @Test
+  public void testCandidates_MissingTrigram() {
+    assertTrue(index.candidates("xyz").isEmpty());
+  }
+
+  @Test
+  public void testCandidates_ShortKeyword() {
+    assertNull(index.candidates("sm"));
+    assertNull(index.candidates(""));
+  }
+
+  @Test
+  public void testCandidates_MayNotContainKeyword() {
+    // Holds the trigrams smi, mit and ith of "smith" but not "smith" itself
+    Contact keith = new Contact.Builder("Smit Keith").build();
+    index.add(keith);
+    assertTrue(index.candidates("smith").contains(keith));
+    assertFalse(keith.matches("smith"));
+  }
+
+  @Test
+  public void testRemove() {
+    index.remove(tim);
+    assertEquals(Collections.singletonList(ann), index.candidates("smith"));
+    assertTrue(index.candidates("nyu.edu").isEmpty());
+  }
+
+  @Test
+  public void testAddAll() {
+    TrigramIndex bulk = new TrigramIndex();
+    bulk.addAll(Arrays.asList(tim, ann));
+    assertEquals(new HashSet<Contact>(index.candidates("smith")),
+        new HashSet<Contact>(bulk.candidates("smith")));
+  }
+}
@@ -70,18 +70,99 @@ public class AddressBook {
 	
   /***
    * Function used to match if a given contact is right match for given text. All field are contact are
-   * looked into.
+   * looked into. The fields are matched as if they were lowercased and joined by a single space, so a
+   * text may span the end of one field and the beginning of the next. Characters are lowercased one at
+   * a time while comparing, so no string is created. Only text which String.toLowerCase doesn't
+   * lowercase character by character is joined and lowercased as a whole.
    * @param contact Object of type Contact that is to be checked if it matches given text.
    * @param textToMatch The text that needs to be matched to.
    * @return Boolean value based on a match or not.
    */
   private boolean match(Contact contact,String textToMatch){
-    String textToMatchLower = textToMatch.toLowerCase();
-    // Appending text from all fields into one string and checking if it contains the text
-    // to be matched.
-    String contactInfo = contact.getName().toLowerCase() + " " + contact.getPhoneNumber().toLowerCase() + " " +
-                  contact.getEmailAddress().toLowerCase() + " " + contact.getNotes().toLowerCase();
-    return contactInfo.contains(textToMatchLower);
+    String name = contact.getName();
+    String phoneNumber = contact.getPhoneNumber();
+    String emailAddress = contact.getEmailAddress();
+    String notes = contact.getNotes();
+    if(!lowercasedPerCharacter(textToMatch) || !lowercasedPerCharacter(name)
+        || !lowercasedPerCharacter(phoneNumber) || !lowercasedPerCharacter(emailAddress)
+        || !lowercasedPerCharacter(notes) || isSpecialCasingLocale(Locale.getDefault())){
+      // Appending text from all fields into one string and checking if it contains the text
+      // to be matched.
+      String contactInfo = name.toLowerCase() + " " + phoneNumber.toLowerCase() + " " +
+                    emailAddress.toLowerCase() + " " + notes.toLowerCase();
+      return contactInfo.contains(textToMatch.toLowerCase());
+    }
+    int length = name.length() + phoneNumber.length() + emailAddress.length() + notes.length() + 3;
+    int textLength = textToMatch.length();
+    for(int start = 0; start + textLength <= length; start++){
+      int matched = 0;
+      while(matched < textLength
+          && Character.toLowerCase(charAt(name, phoneNumber, emailAddress, notes, start + matched))
+              == Character.toLowerCase(textToMatch.charAt(matched))){
+        matched++;
+      }
+      if(matched == textLength){
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  /***
+   * Function to get a character of the fields joined by single spaces, without joining them.
+   * @param position Index of the character in the joined fields.
+   * @return Character at position, a space between two fields.
+   */
+  private static char charAt(String name, String phoneNumber, String emailAddress, String notes,
+      int position){
+    if(position < name.length()){
+      return name.charAt(position);
+    }
+    position -= name.length() + 1;
+    if(position < 0){
+      return ' ';
+    }
+    if(position < phoneNumber.length()){
+      return phoneNumber.charAt(position);
+    }
+    position -= phoneNumber.length() + 1;
+    if(position < 0){
+      return ' ';
+    }
+    if(position < emailAddress.length()){
+      return emailAddress.charAt(position);
+    }
+    position -= emailAddress.length() + 1;
+    if(position < 0){
+      return ' ';
+    }
+    return notes.charAt(position);
+  }
+  
+  /***
+   * Function to check if String.toLowerCase lowercases a text one character at a time, i.e. if it
+   * doesn't contain capital I with dot above, capital sigma or surrogate pairs.
+   * @param text The text to be checked.
+   * @return Boolean value, true if Character.toLowerCase of every character gives the same result.
+   */
+  private static boolean lowercasedPerCharacter(String text){
+    for(int i = 0; i < text.length(); i++){
+      char c = text.charAt(i);
+      if(c == '\u0130' || c == '\u03A3' || Character.isSurrogate(c)){
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /***
+   * Function to check if a locale has language specific lowercasing rules.
+   * @param locale The locale to be checked.
+   * @return Boolean value, true for Turkish, Azerbaijani and Lithuanian.
+   */
+  private static boolean isSpecialCasingLocale(Locale locale){
+    String language = locale.getLanguage();
+    return language.equals("tr") || language.equals("az") || language.equals("lt");
   }
   
   /***
@@ -1,11 +1,26 @@
 package addressbook;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * This package provides a simple API for an Address Book.
@@ -38,19 +53,71 @@ public class AddressBook {
   public enum ContactAttribute { 
     NAME, EMAIL, PHONE, ADDRESS, NOTE
   }
+  /*
+   * How removeContact and removeAll find the Contact to remove. Contact doesn't
+   * override equals, so IDENTITY only removes the very same Contact object, while
+   * CONTENT removes a Contact with equal name, email address, phone number, address
+   * and note.
+   */
+  public enum Equality {
+    IDENTITY, CONTENT
+  }
   private ArrayList<Contact> contactDirectory;
+  /*
+   * One trigram index per ContactAttribute. Searches for terms of at least three
+   * characters, or three digits for PHONE, only verify the candidates of the index
+   * instead of matching every contact.
+   */
+  private final EnumMap<ContactAttribute, AttributeIndex> indexes =
+      new EnumMap<ContactAttribute, AttributeIndex>(ContactAttribute.class);
+  /*
+   * Contacts sorted by lowercased name, for autocompletion, name ranges and
+   * alphabetical iteration. Holds every occurrence of a Contact.
+   */
+  private final SortedNameIndex sortedNameIndex = new SortedNameIndex();
+  /*
+   * Slots of the occurrences of every Contact in contactDirectory, in ascending
+   * order. A Contact can be added more than once; it stays indexed until its last
+   * occurrence is removed. Sorting by slot returns index results in directory order.
+   */
+  private final IdentityHashMap<Contact, ArrayDeque<Integer>> occurrences =
+      new IdentityHashMap<Contact, ArrayDeque<Integer>>();
+  /*
+   * Slots of the Contacts in contactDirectory by content, in ascending order. Built
+   * by the first removal by CONTENT, null until then.
+   */
+  private HashMap<ContentKey, ArrayDeque<Integer>> contentSlots = null;
+  /*
+   * Marks the slot of a removed Contact, so that removing doesn't shift the Contacts
+   * behind it. Slots are reclaimed once more than half of them are removed.
+   */
+  private static final Contact REMOVED = new Contact.Builder().withNote("").build();
+  private int removedSlots = 0;
+  /*
+   * Sequence number of the Contact in every slot of contactDirectory, ascending as
+   * Contacts are only appended. Numbers aren't reused, so a search cursor finds its
+   * position again after removed slots have been reclaimed.
+   */
+  private long[] slotSequences = new long[16];
+  private long nextSequence = 0;
+  private static final int SAVE_BUFFER_SIZE = 1 << 16;
   
   /**
    * Constructor used to create a new empty AddressBook object.
    */
   public AddressBook() {
     contactDirectory = new ArrayList<Contact>();
+    createIndexes();
   }
   
   /**
    * Constructor used to load a previously stored file. User must handle
    * FileNotFoundExceptions and IOExceptions. The filepath must be either
-   * absolute or in the classpath. Using relative paths may throw a FileNotFoundException
+   * absolute or in the classpath. Using relative paths may throw a FileNotFoundException.
+   * Files whose name ends with .gz or .gzip are read as gzip, files ending with .deflate
+   * or .zz as zlib compressed files, see save.
+   * The file is decoded one Contact at a time, which is added to the address book and its
+   * indexes right away, so loading needs little memory beyond the loaded contacts.
    * 
    * @param filepath filepath for file. Maybe filename in classpath or absolute path
    * @throws IOException Thrown when an error occurs on reading the file
@@ -61,21 +128,28 @@ public class AddressBook {
     //Setup to read contents of filepath
     File inFile = new File(filepath);
     FileInputStream inputStream = new FileInputStream(inFile);
-    InputStreamReader streamReader = new InputStreamReader(inputStream);
-    BufferedReader buffReader = new BufferedReader(streamReader);
-    StringBuilder json = new StringBuilder();
-    String line;
-    
-    //Read all of the JSON file
-    while ((line = buffReader.readLine()) != null) {
-      json.append(line);
+    InputStreamReader streamReader;
+    try {
+      streamReader = new InputStreamReader(CompressedStreams.decompress(inputStream, filepath));
+    } catch (IOException headerNotRead) {
+      //No reader owns the file yet, so it has to be closed here
+      inputStream.close();
+      throw headerNotRead;
     }
-    buffReader.close();
+    contactDirectory = new ArrayList<Contact>();
+    createIndexes();
     
-    //Convert the JSON file to an ArrayList and assign it as contactDirectory
-    String formattedJSON = json.toString();
-    Contact[] tempArray = new Gson().fromJson(formattedJSON, Contact[].class);
-    contactDirectory = new ArrayList<>(Arrays.asList(tempArray));
+    //Decode the JSON array one Contact at a time, so that the file is never held in memory
+    Gson gson = new Gson();
+    try (JsonReader jsonReader = new JsonReader(new BufferedReader(streamReader))) {
+      jsonReader.beginArray();
+      while (jsonReader.hasNext()) {
+        Contact contact = gson.fromJson(jsonReader, Contact.class);
+        contactDirectory.add(contact);
+        indexOccurrence(contact, contactDirectory.size() - 1);
+      }
+      jsonReader.endArray();
+    }
   }
   
   /**
@@ -87,19 +161,211 @@ public class AddressBook {
    *  @return boolean of the success or failure of adding to the address book
    */
   public boolean addContact(Contact newEntry) {
-    return contactDirectory.add(newEntry);
+    boolean added = contactDirectory.add(newEntry);
+    indexOccurrence(newEntry, contactDirectory.size() - 1);
+    return added;
   }
   
   /**
    * Removes the a contact from address book and returns a boolean
    * for whether the Contact was successfully removed or not.
+   * If the Contact was added more than once, its first occurrence is removed.
+   * The Contact is looked up in a hash index, so removal takes constant time.
    * 
    * @param entry Contact you want to delete from the address book
    * @return boolean of the success or failure of deleting the contact from the
    * address book
    */
   public boolean removeContact(Contact entry) {
-    return contactDirectory.remove(entry);
+    return removeContact(entry, Equality.IDENTITY);
+  }
+  
+  /**
+   * Removes the first Contact equal to entry according to equality. With
+   * Equality.CONTENT, e.g. a.removeContact(c, AddressBook.Equality.CONTENT), a Contact
+   * read back from a saved file removes its original.
+   * 
+   * @param entry Contact you want to delete from the address book
+   * @param equality whether to remove entry itself or a Contact with the same content
+   * @return boolean of the success or failure of deleting the contact from the
+   * address book
+   */
+  public boolean removeContact(Contact entry, Equality equality) {
+    boolean removed = removeOccurrence(entry, equality);
+    compactIfSparse();
+    return removed;
+  }
+  
+  /**
+   * Removes one occurrence of every Contact of entries, as removeContact does, and
+   * reclaims the freed slots in a single pass at the end.
+   * 
+   * @param entries Contacts you want to delete from the address book
+   * @return number of Contacts which were removed
+   */
+  public int removeAll(Collection<Contact> entries) {
+    return removeAll(entries, Equality.IDENTITY);
+  }
+  
+  /**
+   * Removes one occurrence of every Contact of entries according to equality, as
+   * removeContact(Contact, Equality) does, and reclaims the freed slots in a single
+   * pass at the end.
+   * 
+   * @param entries Contacts you want to delete from the address book
+   * @param equality whether to remove the entries themselves or Contacts with the same
+   * content
+   * @return number of Contacts which were removed
+   */
+  public int removeAll(Collection<Contact> entries, Equality equality) {
+    int removed = 0;
+    for (Contact entry : entries) {
+      if (removeOccurrence(entry, equality)) {
+        removed++;
+      }
+    }
+    compactIfSparse();
+    return removed;
+  }
+  
+  /**
+   * Marks the slot of the first Contact equal to entry as removed and drops it from
+   * the indexes
+   */
+  private boolean removeOccurrence(Contact entry, Equality equality) {
+    if (entry == null) {
+      //null entries aren't indexed
+      int slot = contactDirectory.indexOf(null);
+      if (slot < 0) {
+        return false;
+      }
+      contactDirectory.set(slot, REMOVED);
+      removedSlots++;
+      return true;
+    }
+    ArrayDeque<Integer> slots = (equality == Equality.CONTENT)
+        ? contentSlots().get(new ContentKey(entry)) : occurrences.get(entry);
+    if (slots == null) {
+      return false;
+    }
+    int slot = slots.peekFirst();
+    Contact contact = contactDirectory.get(slot);
+    
+    //The first slot of equal content is also the first occurrence of contact
+    ArrayDeque<Integer> occurrenceSlots = occurrences.get(contact);
+    occurrenceSlots.pollFirst();
+    sortedNameIndex.remove(contact);
+    if (occurrenceSlots.isEmpty()) {
+      occurrences.remove(contact);
+      for (AttributeIndex index : indexes.values()) {
+        index.remove(contact);
+      }
+    }
+    if (contentSlots != null) {
+      ContentKey key = new ContentKey(contact);
+      ArrayDeque<Integer> sameContent = contentSlots.get(key);
+      sameContent.remove(slot);
+      if (sameContent.isEmpty()) {
+        contentSlots.remove(key);
+      }
+    }
+    contactDirectory.set(slot, REMOVED);
+    removedSlots++;
+    return true;
+  }
+  
+  /**
+   * Reclaims the slots of removed Contacts once they are more than half of
+   * contactDirectory, so that removal stays constant time on average
+   */
+  private void compactIfSparse() {
+    if (removedSlots == 0 || removedSlots * 2 <= contactDirectory.size()) {
+      return;
+    }
+    ArrayList<Contact> compacted = new ArrayList<Contact>(
+        contactDirectory.size() - removedSlots);
+    for (int slot = 0; slot < contactDirectory.size(); slot++) {
+      Contact contact = contactDirectory.get(slot);
+      if (contact != REMOVED) {
+        slotSequences[compacted.size()] = slotSequences[slot];
+        compacted.add(contact);
+      }
+    }
+    contactDirectory = compacted;
+    removedSlots = 0;
+    //Renumber the slots; the content index is built again when it is needed
+    for (ArrayDeque<Integer> slots : occurrences.values()) {
+      slots.clear();
+    }
+    for (int slot = 0; slot < contactDirectory.size(); slot++) {
+      Contact contact = contactDirectory.get(slot);
+      if (contact != null) {
+        occurrences.get(contact).addLast(slot);
+      }
+    }
+    contentSlots = null;
+  }
+  
+  /**
+   * Returns the content index, building it on first use
+   */
+  private HashMap<ContentKey, ArrayDeque<Integer>> contentSlots() {
+    if (contentSlots == null) {
+      contentSlots = new HashMap<ContentKey, ArrayDeque<Integer>>();
+      for (int slot = 0; slot < contactDirectory.size(); slot++) {
+        Contact contact = contactDirectory.get(slot);
+        if (contact != null && contact != REMOVED) {
+          addContentSlot(contact, slot);
+        }
+      }
+    }
+    return contentSlots;
+  }
+  
+  private void addContentSlot(Contact contact, int slot) {
+    ContentKey key = new ContentKey(contact);
+    ArrayDeque<Integer> slots = contentSlots.get(key);
+    if (slots == null) {
+      slots = new ArrayDeque<Integer>(1);
+      contentSlots.put(key, slots);
+    }
+    slots.addLast(slot);
+  }
+  
+  /**
+   * Creates an empty index for every ContactAttribute
+   */
+  private void createIndexes() {
+    for (ContactAttribute attribute : ContactAttribute.values()) {
+      indexes.put(attribute, new AttributeIndex(attribute));
+    }
+  }
+  
+  /**
+   * Records a new occurrence of contact at the end of contactDirectory, indexing the
+   * contact on its first occurrence. null entries aren't indexed.
+   */
+  private void indexOccurrence(Contact contact, int slot) {
+    if (slot == slotSequences.length) {
+      slotSequences = Arrays.copyOf(slotSequences, 2 * slot);
+    }
+    slotSequences[slot] = nextSequence++;
+    if (contact == null) {
+      return;
+    }
+    ArrayDeque<Integer> slots = occurrences.get(contact);
+    if (slots == null) {
+      slots = new ArrayDeque<Integer>(1);
+      occurrences.put(contact, slots);
+      for (AttributeIndex index : indexes.values()) {
+        index.add(contact);
+      }
+    }
+    slots.addLast(slot);
+    sortedNameIndex.add(contact);
+    if (contentSlots != null) {
+      addContentSlot(contact, slot);
+    }
   }
   
   /**
@@ -118,54 +384,318 @@ public class AddressBook {
    *  the Contacts that have a user-specified value (even if that value is itself the 
    *  empty string). 
    *  
+   *  Search terms of three or more characters are looked up in a trigram index of the
+   *  attribute, so only Contacts sharing every trigram with the term are matched. Shorter
+   *  terms, and PHONE terms of fewer than three digits, are matched against every
+   *  Contact.
+   *  
    *
    * @param attribute Specifier for which attribute of the contact you wish to search by.
    * Options included under AddressBook.ContactAttributes
    * @param searchTerm String for which you want to want to search the address book for
    * @return ArrayList containing all the contacts that provided a match. 
+   * @throws NullPointerException if searchTerm is null
    */
   public ArrayList<Contact> search(ContactAttribute attribute, String searchTerm) {
+    if (searchTerm == null) {
+      throw new NullPointerException("searchTerm is null");
+    }
+    //Lowercase the term once instead of once per Contact
+    String lowercaseTerm = searchTerm.toLowerCase();
+    List<Contact> candidates = indexes.get(attribute).candidates(searchTerm);
+    if (candidates != null) {
+      List<Contact> matched = new ArrayList<Contact>();
+      for (Contact contact : candidates) {
+        if (contact.matchLowercase(attribute, lowercaseTerm)) {
+          matched.add(contact);
+        }
+      }
+      return inDirectoryOrder(matched);
+    }
+    //Terms too short for the index are matched against every contact
     ArrayList<Contact> matchedContacts = new ArrayList<Contact>();
     for(Contact contact : contactDirectory) {
-      if(contact.match(attribute, searchTerm)){
+      if(contact != REMOVED && contact.matchLowercase(attribute, lowercaseTerm)){
         matchedContacts.add(contact);
       }
     }
     return matchedContacts;
   }
   
+  /**
+   * Searches the address book for the Contacts matching a query over several
+   * attributes, e.g.
+   * a.search(Query.and(Query.contains(AddressBook.ContactAttribute.EMAIL, "nyu.edu"),
+   * Query.contains(AddressBook.ContactAttribute.NAME, "smith"))).
+   * 
+   * The query is planned with the statistics of the attribute indexes: the predicate
+   * with the fewest estimated matches is looked up first and the other predicates are
+   * only verified on its candidates. See Query.
+   * 
+   * @param query Query built with Query.contains, Query.and and Query.or
+   * @return ArrayList containing all the contacts that match, in the order they were added
+   * @throws NullPointerException if query is null
+   */
+  public ArrayList<Contact> search(Query query) {
+    Query plan = query.plan(this);
+    Collection<Contact> candidates = plan.candidates(this);
+    if (candidates != null) {
+      List<Contact> matched = new ArrayList<Contact>();
+      for (Contact contact : candidates) {
+        if (plan.matches(contact)) {
+          matched.add(contact);
+        }
+      }
+      return inDirectoryOrder(matched);
+    }
+    ArrayList<Contact> matchedContacts = new ArrayList<Contact>();
+    for (Contact contact : contactDirectory) {
+      if (contact != REMOVED && plan.matches(contact)) {
+        matchedContacts.add(contact);
+      }
+    }
+    return matchedContacts;
+  }
+  
+  /**
+   * Returns the index of attribute, used by Query
+   */
+  AttributeIndex index(ContactAttribute attribute) {
+    return indexes.get(attribute);
+  }
+  
+  /**
+   * Sorts distinct indexed Contacts in directory order, repeating a Contact for every
+   * occurrence
+   */
+  private ArrayList<Contact> inDirectoryOrder(List<Contact> matched) {
+    TreeMap<Integer, Contact> ordered = new TreeMap<Integer, Contact>();
+    for (Contact contact : matched) {
+      for (Integer slot : occurrences.get(contact)) {
+        ordered.put(slot, contact);
+      }
+    }
+    return new ArrayList<Contact>(ordered.values());
+  }
+  
+  /**
+   * Returns the Contacts whose name starts with prefix, ignoring case, in alphabetical
+   * order, e.g. a.autocompleteName("Ma", 10) for a type-ahead box. Contacts of equal
+   * names are returned in the order they were added. Names are kept in a sorted index,
+   * so the cost depends on the number of returned Contacts, not on the size of the
+   * address book.
+   * 
+   * @param prefix String the name should start with
+   * @param limit greatest number of returned Contacts
+   * @return ArrayList of up to limit Contacts, empty if no name starts with prefix
+   * @throws IllegalArgumentException if limit isn't positive
+   * @throws NullPointerException if prefix is null
+   */
+  public ArrayList<Contact> autocompleteName(String prefix, int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("limit must be positive");
+    }
+    return sortedNameIndex.startingWith(prefix.toLowerCase(), limit);
+  }
+  
+  /**
+   * Returns the Contacts whose name lies between from, inclusive, and to, exclusive,
+   * in alphabetical order. Names are compared ignoring case, so
+   * a.searchNameRange("a", "n") returns the names starting with A to M.
+   * 
+   * @param from String lower bound of the names
+   * @param to String upper bound of the names
+   * @return ArrayList of the Contacts in the range
+   * @throws IllegalArgumentException if from comes after to
+   * @throws NullPointerException if from or to is null
+   */
+  public ArrayList<Contact> searchNameRange(String from, String to) {
+    return sortedNameIndex.between(from.toLowerCase(), to.toLowerCase());
+  }
+  
+  /**
+   * Returns the Contacts having a name in alphabetical order of their names, ignoring
+   * case. The Contacts are read from the sorted name index, nothing is copied or sorted.
+   * The AddressBook must not be modified while iterating.
+   * 
+   * @return Iterable over the Contacts, Contacts of equal names in the order they were
+   * added
+   */
+  public Iterable<Contact> contactsByName() {
+    return sortedNameIndex;
+  }
+  
+  /**
+   * Lazy variant of search(ContactAttribute, String). Contacts are only matched as the
+   * returned Stream is consumed, so short-circuiting operations such as limit(n),
+   * findFirst() or iterator() stop the scan as soon as enough Contacts have been found.
+   * For example, a.searchLazily(AddressBook.ContactAttribute.NAME, "tom").limit(20)
+   * stops after the 20th matching Contact.
+   * 
+   * The AddressBook must not be modified while the Stream is being consumed.
+   * 
+   * @param attribute Specifier for which attribute of the contact you wish to search by.
+   * @param searchTerm String for which you want to search the address book for
+   * @return Stream of the matching Contacts in the order they were added
+   * @throws NullPointerException if searchTerm is null
+   */
+  public Stream<Contact> searchLazily(ContactAttribute attribute, String searchTerm) {
+    if (searchTerm == null) {
+      throw new NullPointerException("searchTerm is null");
+    }
+    String lowercaseTerm = searchTerm.toLowerCase();
+    return contactDirectory.stream()
+        .filter(contact -> contact != REMOVED)
+        .filter(contact -> contact.matchLowercase(attribute, lowercaseTerm));
+  }
+  
+  /**
+   * Returns the first page of a search(ContactAttribute, String). The scan stops as
+   * soon as pageSize Contacts matched; pass the cursor of the returned page to
+   * search(SearchPage.Cursor, int) to continue it.
+   * 
+   * @param attribute Specifier for which attribute of the contact you wish to search by.
+   * @param searchTerm String for which you want to search the address book for
+   * @param pageSize maximum number of Contacts in the page
+   * @return SearchPage with up to pageSize matching Contacts
+   * @throws NullPointerException if searchTerm is null
+   * @throws IllegalArgumentException if pageSize isn't positive
+   */
+  public SearchPage search(ContactAttribute attribute, String searchTerm, int pageSize) {
+    if (searchTerm == null) {
+      throw new NullPointerException("searchTerm is null");
+    }
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("pageSize must be positive");
+    }
+    return page(attribute, searchTerm, 0, pageSize);
+  }
+  
+  /**
+   * Returns the next page of a search started by search(ContactAttribute, String, int).
+   * The scan resumes right after the slot of the last Contact of the previous page, even
+   * if that Contact was added more than once or has been removed since. Contacts added
+   * in the meantime appear in later pages.
+   * 
+   * @param cursor cursor of the previous page, see SearchPage.getNextCursor()
+   * @param pageSize maximum number of Contacts in the page
+   * @return SearchPage with up to pageSize matching Contacts
+   * @throws IllegalArgumentException if pageSize isn't positive or the cursor
+   * belongs to another AddressBook
+   */
+  public SearchPage search(SearchPage.Cursor cursor, int pageSize) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("pageSize must be positive");
+    }
+    if (cursor.addressBook != this) {
+      throw new IllegalArgumentException("cursor belongs to another AddressBook");
+    }
+    int index = cursor.index;
+    if (index >= contactDirectory.size() || slotSequences[index] != cursor.sequence) {
+      //Removed slots have been reclaimed, the slot of the last Contact moved or is gone
+      int found = Arrays.binarySearch(slotSequences, 0, contactDirectory.size(),
+          cursor.sequence);
+      index = (found >= 0) ? found : -found - 2;
+    }
+    return page(cursor.attribute, cursor.searchTerm, index + 1, pageSize);
+  }
+  
+  /**
+   * Collects up to pageSize matching Contacts, starting the scan at index start
+   */
+  private SearchPage page(ContactAttribute attribute, String searchTerm, int start,
+      int pageSize) {
+    ArrayList<Contact> matchedContacts = new ArrayList<Contact>();
+    String lowercaseTerm = searchTerm.toLowerCase();
+    int index = start;
+    for (; index < contactDirectory.size() && matchedContacts.size() < pageSize; index++) {
+      Contact contact = contactDirectory.get(index);
+      if (contact != REMOVED && contact.matchLowercase(attribute, lowercaseTerm)) {
+        matchedContacts.add(contact);
+      }
+    }
+    SearchPage.Cursor next = null;
+    if (matchedContacts.size() == pageSize) {
+      next = new SearchPage.Cursor(this, attribute, searchTerm, index - 1,
+          slotSequences[index - 1]);
+    }
+    return new SearchPage(matchedContacts, next);
+  }
+  
   /**
    * Writes AddressBook to JSON object specified by filepath. The filepath must be in the
    * current classpath or an absolute path. This method throws IOException and FileNotFound,
    * which the user must handle.
    * 
+   * The file is gzip compressed if filepath ends with .gz or .gzip and zlib compressed
+   * if it ends with .deflate or .zz. Compression runs on a separate thread, overlapping
+   * with the JSON encoding of the contacts.
+   * 
+   * Contacts are encoded one at a time through a buffered writer into a temporary file
+   * next to filepath, which is forced to the device and then renamed to filepath. An
+   * existing file is therefore either replaced by the complete new one or left untouched.
+   * 
    * @param filepath Absolute path or filename where you'd like to store this JSON object
+   * @return SaveSummary with the number of contacts and bytes written
    * @throws IOException Thrown when IOException is encountered when writing the file
    * @throws FileNotFoundException Thrown when Filepath can't be resolved
    */
-  public void save(String filepath) throws IOException, FileNotFoundException {
-    File outFile = new File(filepath);
-
-    //Serialize contactDirectory to JSON object and store that as a String
+  public SaveSummary save(String filepath) throws IOException, FileNotFoundException {
+    File outFile = new File(filepath).getAbsoluteFile();
+    File directory = outFile.getParentFile();
+    if (directory == null || !directory.isDirectory() || outFile.isDirectory()) {
+      throw new FileNotFoundException(filepath + " (Not a file in an existing directory)");
+    }
+    File tempFile = File.createTempFile("." + outFile.getName() + "-", ".tmp", directory);
+    
+    //Stream every Contact into the temporary file, the JSON is never held in memory
     Gson gson = new GsonBuilder()
         .serializeNulls()
         .create();
-    String json = gson.toJson(contactDirectory);
-
-    //Write the JSON string to a file specified by filepath
-    FileOutputStream outputStream = new FileOutputStream(outFile);
-    OutputStreamWriter outWriter = new OutputStreamWriter(outputStream);
-    outWriter.append(json);
+    int contactsWritten = 0;
+    long bytesWritten;
+    boolean saved = false;
+    try {
+      try (FileOutputStream outputStream = new FileOutputStream(tempFile);
+          JsonWriter jsonWriter = new JsonWriter(new BufferedWriter(new OutputStreamWriter(
+              CompressedStreams.compress(outputStream, filepath)), SAVE_BUFFER_SIZE))) {
+        jsonWriter.beginArray();
+        for (Contact contact : contactDirectory) {
+          if (contact != REMOVED) {
+            gson.toJson(contact, Contact.class, jsonWriter);
+            contactsWritten++;
+          }
+        }
+        jsonWriter.endArray();
+      }
       
-    outWriter.close();
-    outputStream.close();
+      //The rename must not become visible before the content is on the device
+      try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE)) {
+        channel.force(true);
+        bytesWritten = channel.size();
+      }
+      try {
+        Files.move(tempFile.toPath(), outFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException atomicMoveFailed) {
+        Files.move(tempFile.toPath(), outFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      saved = true;
+    } finally {
+      if (!saved) {
+        tempFile.delete();
+      }
+    }
+    return new SaveSummary(contactsWritten, bytesWritten);
   }
   
   @Override public String toString() {
     StringBuilder allContacts = new StringBuilder();
     for (Contact contact: contactDirectory) {
-      allContacts.append(contact);
-      allContacts.append("\n");
+      if (contact != REMOVED) {
+        allContacts.append(contact);
+        allContacts.append("\n");
+      }
     }
     return allContacts.toString();
   }
@@ -176,6 +706,31 @@ public class AddressBook {
    * @return number of contacts in the address book
    */
   int numberOfContacts() {
-    return contactDirectory.size();
+    return contactDirectory.size() - removedSlots;
+  }
+  
+  /**
+   * Key of the content index: the values of all attributes of a Contact
+   */
+  private static final class ContentKey {
+    private final String[] values;
+    private final int hash;
+    
+    ContentKey(Contact contact) {
+      ContactAttribute[] attributes = ContactAttribute.values();
+      values = new String[attributes.length];
+      for (int i = 0; i < attributes.length; i++) {
+        values[i] = contact.attributeValue(attributes[i]);
+      }
+      hash = Arrays.hashCode(values);
+    }
+    
+    @Override public boolean equals(Object other) {
+      return other instanceof ContentKey && Arrays.equals(values, ((ContentKey) other).values);
+    }
+    
+    @Override public int hashCode() {
+      return hash;
+    }
   }
 }
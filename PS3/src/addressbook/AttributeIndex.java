@@ -0,0 +1,158 @@
+package addressbook;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram index over the values of one ContactAttribute. Every Contact is registered
+ * under each distinct trigram (three consecutive characters) of its value. A search term
+ * of at least three characters can only be contained in values which hold every trigram
+ * of the term, so intersecting the posting sets of those trigrams gives a small set of
+ * candidates which are then verified by Contact.match.
+ * 
+ * Values are normalized the way Contact.match compares them: lowercased for text
+ * attributes, reduced to their digits for phone numbers. Contacts without a value for
+ * the attribute aren't indexed. Contacts are tracked by identity. Terms shorter than a
+ * trigram, including phone terms of fewer than three digits, can't be answered by the
+ * index and are matched against every Contact instead.
+ * 
+ * @author Anuj Bora
+ *
+ */
+class AttributeIndex {
+  static final int GRAM_LENGTH = 3;
+  
+  private final AddressBook.ContactAttribute attribute;
+  private final Map<String, Set<Contact>> postings = new HashMap<String, Set<Contact>>();
+  
+  AttributeIndex(AddressBook.ContactAttribute attribute) {
+    this.attribute = attribute;
+  }
+  
+  /**
+   * Registers contact under every trigram of its value
+   * @param contact Contact to be indexed
+   */
+  void add(Contact contact) {
+    String value = contact.attributeValue(attribute);
+    if (value == null) {
+      return;
+    }
+    for (String gram : trigrams(normalize(value))) {
+      Set<Contact> posting = postings.get(gram);
+      if (posting == null) {
+        posting = Collections.newSetFromMap(new IdentityHashMap<Contact, Boolean>());
+        postings.put(gram, posting);
+      }
+      posting.add(contact);
+    }
+  }
+  
+  /**
+   * Removes contact from every posting set it was registered in
+   * @param contact Contact to be removed from the index
+   */
+  void remove(Contact contact) {
+    String value = contact.attributeValue(attribute);
+    if (value == null) {
+      return;
+    }
+    for (String gram : trigrams(normalize(value))) {
+      Set<Contact> posting = postings.get(gram);
+      if (posting != null) {
+        posting.remove(contact);
+        // Drop empty posting sets so that the map doesn't grow forever
+        if (posting.isEmpty()) {
+          postings.remove(gram);
+        }
+      }
+    }
+  }
+  
+  /**
+   * Returns the Contacts whose value holds every trigram of searchTerm, in no particular
+   * order. The candidates still have to be verified by Contact.match.
+   * 
+   * @param searchTerm term as passed to AddressBook.search
+   * @return List of candidates, or null if the normalized term is shorter than a
+   * trigram and the index can't be used
+   */
+  List<Contact> candidates(String searchTerm) {
+    String term = normalize(searchTerm);
+    if (term.length() < GRAM_LENGTH) {
+      return null;
+    }
+    //Collect posting sets of the term; a missing trigram means no match
+    List<Set<Contact>> sets = new ArrayList<Set<Contact>>();
+    Set<Contact> smallest = null;
+    for (String gram : trigrams(term)) {
+      Set<Contact> posting = postings.get(gram);
+      if (posting == null) {
+        return new ArrayList<Contact>();
+      }
+      sets.add(posting);
+      if (smallest == null || posting.size() < smallest.size()) {
+        smallest = posting;
+      }
+    }
+    //Intersect starting from the smallest posting set
+    List<Contact> result = new ArrayList<Contact>();
+    for (Contact contact : smallest) {
+      boolean inAll = true;
+      for (Set<Contact> posting : sets) {
+        if (posting != smallest && !posting.contains(contact)) {
+          inAll = false;
+          break;
+        }
+      }
+      if (inAll) {
+        result.add(contact);
+      }
+    }
+    return result;
+  }
+  
+  /**
+   * Returns an upper bound of the number of Contacts whose value contains searchTerm:
+   * the size of the smallest posting set of its trigrams. Used to plan queries.
+   * 
+   * @param searchTerm term as passed to AddressBook.search
+   * @return estimated number of matches, or -1 if the term is too short for the index
+   */
+  int estimate(String searchTerm) {
+    String term = normalize(searchTerm);
+    if (term.length() < GRAM_LENGTH) {
+      return -1;
+    }
+    int estimate = Integer.MAX_VALUE;
+    for (String gram : trigrams(term)) {
+      Set<Contact> posting = postings.get(gram);
+      estimate = Math.min(estimate, (posting == null) ? 0 : posting.size());
+    }
+    return estimate;
+  }
+  
+  /**
+   * Normalizes a value or search term like Contact.match does before comparing
+   */
+  private String normalize(String value) {
+    if (attribute == AddressBook.ContactAttribute.PHONE) {
+      return Contact.digitsOf(value);
+    }
+    return value.toLowerCase();
+  }
+  
+  private static Set<String> trigrams(String text) {
+    Set<String> grams = new HashSet<String>();
+    for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+      grams.add(text.substring(i, i + GRAM_LENGTH));
+    }
+    return grams;
+  }
+}
@@ -0,0 +1,241 @@
+package addressbook;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Wraps the streams of AddressBook files so that they are transparently
+ * compressed according to the file extension: files ending with .gz or .gzip
+ * are gzip files, files ending with .deflate or .zz are zlib compressed, all
+ * other files are left uncompressed.
+ * 
+ * Compression runs on a background thread so that it overlaps with the JSON
+ * encoding of the contacts on the calling thread.
+ * 
+ * @author Anuj Bora
+ *
+ */
+final class CompressedStreams {
+  private static final int BUFFER_SIZE = 1 << 16;
+  
+  private CompressedStreams() {
+  }
+  
+  /**
+   * Returns a stream writing to out, compressed according to the extension of filepath.
+   * Closing the returned stream completes the compressed data, releases the native
+   * memory of its deflater and closes out.
+   * 
+   * @param out stream of the file
+   * @param filepath path of the file
+   * @return compressing stream, or out itself for uncompressed files
+   * @throws IOException Thrown when the compressed header can't be written
+   */
+  static OutputStream compress(OutputStream out, String filepath) throws IOException {
+    String name = filepath.toLowerCase(Locale.ROOT);
+    if (name.endsWith(".gz") || name.endsWith(".gzip")) {
+      return new BackgroundCompressor(new GZIPOutputStream(out, BUFFER_SIZE));
+    }
+    if (name.endsWith(".deflate") || name.endsWith(".zz")) {
+      //The stream doesn't end a deflater it was given, so this one is ended on close
+      return new BackgroundCompressor(
+          new DeflaterOutputStream(out, new Deflater(), BUFFER_SIZE) {
+            @Override public void close() throws IOException {
+              try {
+                super.close();
+              } finally {
+                def.end();
+              }
+            }
+          });
+    }
+    return out;
+  }
+  
+  /**
+   * Returns a stream reading from in, decompressed according to the extension of filepath.
+   * Closing the returned stream releases its inflater and closes in.
+   * 
+   * @param in stream of the file
+   * @param filepath path of the file
+   * @return decompressing stream, or in itself for uncompressed files
+   * @throws IOException Thrown when the compressed header can't be read
+   */
+  static InputStream decompress(InputStream in, String filepath) throws IOException {
+    String name = filepath.toLowerCase(Locale.ROOT);
+    if (name.endsWith(".gz") || name.endsWith(".gzip")) {
+      return new GZIPInputStream(in, BUFFER_SIZE);
+    }
+    if (name.endsWith(".deflate") || name.endsWith(".zz")) {
+      //Like for compress, the inflater is ended by close
+      return new InflaterInputStream(in, new Inflater(), BUFFER_SIZE) {
+        @Override public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            inf.end();
+          }
+        }
+      };
+    }
+    return in;
+  }
+  
+  /**
+   * OutputStream collecting the written bytes in chunks which a background thread
+   * compresses into a DeflaterOutputStream. The queue between both threads is bounded,
+   * so the writer blocks when the compressor falls behind. A failure of the
+   * compressor, including an unchecked exception or error, is thrown by the next
+   * write, flush or close.
+   */
+  private static final class BackgroundCompressor extends OutputStream {
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int QUEUED_CHUNKS = 4;
+    // Empty chunk marking the end of the data
+    private static final byte[] END = new byte[0];
+    
+    private final DeflaterOutputStream sink;
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<byte[]>(QUEUED_CHUNKS);
+    private final Thread compressor;
+    private volatile Throwable failure = null;
+    private byte[] chunk = new byte[CHUNK_SIZE];
+    private int length = 0;
+    private boolean closed = false;
+    
+    BackgroundCompressor(DeflaterOutputStream sink) {
+      this.sink = sink;
+      compressor = new Thread(new Runnable() {
+        @Override public void run() {
+          compress();
+        }
+      }, "addressbook-compressor");
+      compressor.setDaemon(true);
+      compressor.start();
+    }
+    
+    @Override public void write(int b) throws IOException {
+      if (length == CHUNK_SIZE) {
+        handOver();
+      }
+      chunk[length++] = (byte) b;
+    }
+    
+    @Override public void write(byte[] bytes, int offset, int count) throws IOException {
+      while (count > 0) {
+        if (length == CHUNK_SIZE) {
+          handOver();
+        }
+        int copied = Math.min(count, CHUNK_SIZE - length);
+        System.arraycopy(bytes, offset, chunk, length, copied);
+        length += copied;
+        offset += copied;
+        count -= copied;
+      }
+    }
+    
+    /*
+     * Hands the bytes written so far to the compressor without flushing the
+     * compressed stream, which would degrade compression
+     */
+    @Override public void flush() throws IOException {
+      rethrowFailure();
+      if (length > 0) {
+        handOver();
+      }
+    }
+    
+    @Override public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        flush();
+      } finally {
+        // Ends the compressor thread even if the last chunk couldn't be handed over
+        put(END);
+      }
+      try {
+        compressor.join();
+      } catch (InterruptedException interrupted) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while compressing");
+      }
+      rethrowFailure();
+    }
+    
+    private void handOver() throws IOException {
+      rethrowFailure();
+      // The compressor keeps the chunk, so continue in a new one
+      put((length == CHUNK_SIZE) ? chunk : Arrays.copyOf(chunk, length));
+      chunk = new byte[CHUNK_SIZE];
+      length = 0;
+    }
+    
+    private void put(byte[] bytes) throws IOException {
+      try {
+        queue.put(bytes);
+      } catch (InterruptedException interrupted) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while compressing");
+      }
+    }
+    
+    private void rethrowFailure() throws IOException {
+      Throwable failed = failure;
+      if (failed instanceof IOException) {
+        throw (IOException) failed;
+      }
+      if (failed instanceof RuntimeException) {
+        throw (RuntimeException) failed;
+      }
+      if (failed instanceof Error) {
+        throw (Error) failed;
+      }
+    }
+    
+    /*
+     * Body of the compressor thread. After a failure the remaining chunks are
+     * drained without being compressed so that the writer never blocks forever.
+     * Any Throwable counts as a failure, the thread must not die of it while the
+     * writer waits for room in the queue. The sink is closed in any case, so that
+     * its deflater is released.
+     */
+    private void compress() {
+      try {
+        byte[] bytes;
+        while ((bytes = queue.take()) != END) {
+          if (failure == null) {
+            try {
+              sink.write(bytes);
+            } catch (Throwable compressionFailed) {
+              failure = compressionFailed;
+            }
+          }
+        }
+      } catch (InterruptedException interrupted) {
+        failure = new InterruptedIOException("Compressor interrupted");
+      }
+      try {
+        sink.close();
+      } catch (Throwable compressionFailed) {
+        //After an earlier failure, closing only has to release the deflater
+        if (failure == null) {
+          failure = compressionFailed;
+        }
+      }
+    }
+  }
+}
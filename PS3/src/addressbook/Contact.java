@@ -179,6 +179,85 @@ public class Contact {
     return matchFound;
   }
   
+  /**
+   * Same as match, for a search term which has already been lowercased with
+   * toLowerCase(). Used by AddressBook to lowercase the term once per search
+   * instead of once per Contact.
+   * 
+   * @param attribute Specific attribute of the Contact you are trying to search through
+   * @param lowercaseTerm the lowercased String you are searching for
+   * @return boolean of whether the specified attribute of this Contact matches the term
+   */
+  boolean matchLowercase(AddressBook.ContactAttribute attribute, String lowercaseTerm) {
+    boolean matchFound = false;
+    switch(attribute) {
+      case NAME:
+        matchFound = (name == null) ? false : name.matchLowercase(lowercaseTerm);
+        break;
+      case EMAIL:
+        matchFound = (emailAddress == null) ? false : emailAddress.matchLowercase(lowercaseTerm);
+        break;
+      case PHONE:
+        matchFound = (phoneNumber == null) ? false :phoneNumber.matchLowercase(lowercaseTerm);
+        break;
+      case ADDRESS:
+        matchFound = (address == null) ? false : address.matchLowercase(lowercaseTerm);
+        break;
+      case NOTE:
+        matchFound = (note == null) ? false : note.matchLowercase(lowercaseTerm);
+        break;
+    }
+    return matchFound;
+  }
+  
+  /**
+   * Returns the String stored for attribute, null if the attribute isn't present or
+   * holds null. Unlike the getX() methods this never throws.
+   * 
+   * @param attribute Specific attribute of the Contact
+   * @return String value of the attribute, or null
+   */
+  String attributeValue(AddressBook.ContactAttribute attribute) {
+    MatchableString value = null;
+    switch(attribute) {
+      case NAME:
+        value = name;
+        break;
+      case EMAIL:
+        value = emailAddress;
+        break;
+      case PHONE:
+        value = phoneNumber;
+        break;
+      case ADDRESS:
+        value = address;
+        break;
+      case NOTE:
+        value = note;
+        break;
+    }
+    return (value == null) ? null : value.toString();
+  }
+  
+  /**
+   * Takes a string, removes all non-decimal characters and returns 
+   * a String with those characters removed. Only the ASCII digits 0-9 are
+   * kept, like the [^\\d] pattern this used to be implemented with. Phone
+   * numbers are compared and indexed by these digits.
+   * 
+   * @param number phoneNumber String you want to sanitize
+   */
+  static String digitsOf(String number) {
+    StringBuilder sanitized = new StringBuilder(number.length());
+    for (int i = 0; i < number.length(); i++) {
+      char ch = number.charAt(i);
+      if (ch >= '0' && ch <= '9') {
+        sanitized.append(ch);
+      }
+    }
+    return sanitized.toString();
+  }
+  
   /** Returns the Name of this Contact, null if not present */
   public String getName() {
     return name.toString();
@@ -235,9 +314,17 @@ public class Contact {
  */
 class MatchableString {
   protected final String str;
+  /*
+   * str lowercased, computed once. Contacts loaded by Gson are created without
+   * calling the constructor, so folded is also computed on the first match.
+   */
+  private transient String folded;
   
   MatchableString (String matchable) {
     str = matchable;
+    if (matchable != null) {
+      folded = matchable.toLowerCase();
+    }
   }
   
   /**
@@ -250,10 +337,22 @@ class MatchableString {
    * @return whether the string gives a match for this string
    */
   boolean match(String searchTerm) {
-    String sanitizedSearchTerm = searchTerm.toLowerCase();
-    
-    return str.toLowerCase()
-        .contains(sanitizedSearchTerm);
+    return matchLowercase(searchTerm.toLowerCase());
+  }
+  
+  /**
+   * Same as match, for a search term which is already lowercased. This string
+   * is lowercased once when it is created, so this allocates nothing. Searching
+   * many contacts for the same term should lowercase it once and call this.
+   * 
+   * @param lowercaseTerm the result of toLowerCase() on the search term
+   * @return whether the string gives a match for this string
+   */
+  boolean matchLowercase(String lowercaseTerm) {
+    if (folded == null) {
+      folded = str.toLowerCase();
+    }
+    return folded.contains(lowercaseTerm);
   }
   
   @Override public String toString() {
@@ -268,30 +367,62 @@ class MatchableString {
  *
  */
 class PhoneNumber extends MatchableString {
+  /*
+   * Digits of str, computed once. Contacts loaded by Gson are created without
+   * calling the constructor, so digits is also computed on the first match.
+   */
+  private transient String digits;
   
   PhoneNumber(String phoneNumber) {
     super(phoneNumber);
+    if (phoneNumber != null) {
+      digits = Contact.digitsOf(phoneNumber);
+    }
   }
   
-  /**
-   * Takes a string, removes all non-decimal characters and returns 
-   * a String with those characters removed. Helper method for match.
-   * 
-   * @param number phoneNumber String you want to sanitize
-   */
-  private String sanitizeNumber(String number) {
-    return number.replaceAll("[^\\d]", "");
+  private static boolean isDigit(char ch) {
+    return ch >= '0' && ch <= '9';
   }
   
   /**
    * Returns true if the sanitized input string is a substring of the 
-   * sanitized stored string.
+   * sanitized stored string. The digits of searchTerm are compared in place,
+   * so no String is created.
    * @param searchTerm Phone Number input you are searching for
    * @return whether the sanitized input provides a match for this string
    */
-  @Override boolean match(String searchTerm) {    
-    String sanitizedInput = sanitizeNumber(searchTerm);
-    
-    return sanitizeNumber(str).contains(sanitizedInput);
+  @Override boolean match(String searchTerm) {
+    if (digits == null) {
+      digits = Contact.digitsOf(str);
+    }
+    //Skip to the first digit of the term, a term without digits matches every number
+    int first = 0;
+    while (first < searchTerm.length() && !isDigit(searchTerm.charAt(first))) {
+      first++;
+    }
+    if (first == searchTerm.length()) {
+      return true;
+    }
+    for (int start = 0; start < digits.length(); start++) {
+      int position = start;
+      boolean matched = true;
+      for (int i = first; i < searchTerm.length() && matched; i++) {
+        char ch = searchTerm.charAt(i);
+        if (isDigit(ch)) {
+          matched = position < digits.length() && digits.charAt(position++) == ch;
+        }
+      }
+      if (matched) {
+        return true;
+      }
+    }
+    return false;
   }
-}
\ No newline at end of file
+  
+  /**
+   * Lowercasing never adds or removes digits, so this is the same as match
+   */
+  @Override boolean matchLowercase(String lowercaseTerm) {
+    return match(lowercaseTerm);
+  }
+}
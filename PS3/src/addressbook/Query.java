@@ -0,0 +1,281 @@
+package addressbook;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import addressbook.AddressBook.ContactAttribute;
+
+/**
+ * A search over several attributes of the Contacts of an AddressBook, built from
+ * attribute predicates combined with and and or. For example,
+ * Query.and(Query.contains(ContactAttribute.EMAIL, "nyu.edu"),
+ * Query.contains(ContactAttribute.NAME, "smith")) finds the Contacts with an NYU email
+ * whose name contains smith. Predicates match like AddressBook.search does.
+ *
+ * AddressBook.search(Query) plans the query before running it. Every predicate is given
+ * an estimate of its number of matches from the trigram index of its attribute. An and
+ * only looks up its most selective predicate in the index and verifies the other ones
+ * on those candidates, so its cost follows the size of the smallest posting list rather
+ * than the size of the AddressBook. An or unites the candidates of its predicates. A
+ * query with a predicate the index can't answer, such as a term shorter than three
+ * characters outside an and, is matched against every Contact.
+ *
+ * Queries are immutable and may be reused for any AddressBook.
+ *
+ * @author Anuj Bora
+ *
+ */
+public abstract class Query {
+  
+  Query() {
+  }
+  
+  /**
+   * Returns a query matching the Contacts whose attribute contains searchTerm, as
+   * AddressBook.search(attribute, searchTerm) does
+   *
+   * @param attribute attribute of the Contact to search
+   * @param searchTerm String to search for
+   * @return Query of the predicate
+   * @throws NullPointerException if attribute or searchTerm is null
+   */
+  public static Query contains(ContactAttribute attribute, String searchTerm) {
+    if (attribute == null || searchTerm == null) {
+      throw new NullPointerException("attribute and searchTerm must not be null");
+    }
+    return new Contains(attribute, searchTerm);
+  }
+  
+  /**
+   * Returns a query matching the Contacts matched by all of queries
+   *
+   * @param queries at least one Query
+   * @return conjunction of queries
+   * @throws IllegalArgumentException if no query is given
+   * @throws NullPointerException if one of queries is null
+   */
+  public static Query and(Query... queries) {
+    return new And(checked(queries));
+  }
+  
+  /**
+   * Returns a query matching the Contacts matched by any of queries
+   *
+   * @param queries at least one Query
+   * @return disjunction of queries
+   * @throws IllegalArgumentException if no query is given
+   * @throws NullPointerException if one of queries is null
+   */
+  public static Query or(Query... queries) {
+    return new Or(checked(queries));
+  }
+  
+  private static List<Query> checked(Query[] queries) {
+    if (queries.length == 0) {
+      throw new IllegalArgumentException("At least one query is needed");
+    }
+    for (Query query : queries) {
+      if (query == null) {
+        throw new NullPointerException("queries must not contain null");
+      }
+    }
+    return Collections.unmodifiableList(new ArrayList<Query>(Arrays.asList(queries)));
+  }
+  
+  /**
+   * Returns an upper bound of the number of Contacts of addressBook matching this query
+   */
+  abstract int estimate(AddressBook addressBook);
+  
+  /**
+   * Returns the Contacts of addressBook which may match this query, in no particular
+   * order and each of them once, or null if every Contact has to be matched
+   */
+  abstract Collection<Contact> candidates(AddressBook addressBook);
+  
+  /**
+   * Returns whether contact matches this query
+   */
+  abstract boolean matches(Contact contact);
+  
+  /**
+   * Returns an equivalent query evaluating its most selective predicates first in
+   * addressBook
+   */
+  abstract Query plan(AddressBook addressBook);
+  
+  /**
+   * Predicate on a single attribute
+   */
+  private static final class Contains extends Query {
+    private final ContactAttribute attribute;
+    private final String searchTerm;
+    private final String lowercaseTerm;
+    
+    Contains(ContactAttribute attribute, String searchTerm) {
+      this.attribute = attribute;
+      this.searchTerm = searchTerm;
+      lowercaseTerm = searchTerm.toLowerCase();
+    }
+    
+    @Override int estimate(AddressBook addressBook) {
+      int estimate = addressBook.index(attribute).estimate(searchTerm);
+      return (estimate < 0) ? addressBook.numberOfContacts() : estimate;
+    }
+    
+    @Override Collection<Contact> candidates(AddressBook addressBook) {
+      return addressBook.index(attribute).candidates(searchTerm);
+    }
+    
+    @Override boolean matches(Contact contact) {
+      return contact.matchLowercase(attribute, lowercaseTerm);
+    }
+    
+    @Override Query plan(AddressBook addressBook) {
+      return this;
+    }
+    
+    @Override public String toString() {
+      return attribute + " contains \"" + searchTerm + "\"";
+    }
+  }
+  
+  /**
+   * Conjunction. Once planned, the queries are ordered by ascending estimate.
+   */
+  private static final class And extends Query {
+    private final List<Query> queries;
+    
+    And(List<Query> queries) {
+      this.queries = queries;
+    }
+    
+    @Override int estimate(AddressBook addressBook) {
+      int estimate = Integer.MAX_VALUE;
+      for (Query query : queries) {
+        estimate = Math.min(estimate, query.estimate(addressBook));
+      }
+      return estimate;
+    }
+    
+    @Override Collection<Contact> candidates(AddressBook addressBook) {
+      //The first query the index can answer is the most selective one
+      for (Query query : queries) {
+        Collection<Contact> candidates = query.candidates(addressBook);
+        if (candidates != null) {
+          return candidates;
+        }
+      }
+      return null;
+    }
+    
+    @Override boolean matches(Contact contact) {
+      for (Query query : queries) {
+        if (!query.matches(contact)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    
+    @Override Query plan(AddressBook addressBook) {
+      return new And(planned(queries, addressBook, true));
+    }
+    
+    @Override public String toString() {
+      return joined(queries, " AND ");
+    }
+  }
+  
+  /**
+   * Disjunction. Once planned, the queries are ordered by descending estimate, so that
+   * the query most likely to match is tried first.
+   */
+  private static final class Or extends Query {
+    private final List<Query> queries;
+    
+    Or(List<Query> queries) {
+      this.queries = queries;
+    }
+    
+    @Override int estimate(AddressBook addressBook) {
+      long estimate = 0;
+      for (Query query : queries) {
+        estimate += query.estimate(addressBook);
+      }
+      return (int) Math.min(estimate, addressBook.numberOfContacts());
+    }
+    
+    @Override Collection<Contact> candidates(AddressBook addressBook) {
+      Set<Contact> union = Collections.newSetFromMap(new IdentityHashMap<Contact, Boolean>());
+      for (Query query : queries) {
+        Collection<Contact> candidates = query.candidates(addressBook);
+        if (candidates == null) {
+          return null;
+        }
+        union.addAll(candidates);
+      }
+      return union;
+    }
+    
+    @Override boolean matches(Contact contact) {
+      for (Query query : queries) {
+        if (query.matches(contact)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    
+    @Override Query plan(AddressBook addressBook) {
+      return new Or(planned(queries, addressBook, false));
+    }
+    
+    @Override public String toString() {
+      return joined(queries, " OR ");
+    }
+  }
+  
+  /**
+   * Plans every query and sorts them by their estimate, computed once per query
+   */
+  private static List<Query> planned(List<Query> queries, AddressBook addressBook,
+      boolean ascending) {
+    final List<Query> planned = new ArrayList<Query>(queries.size());
+    final List<Integer> estimates = new ArrayList<Integer>(queries.size());
+    for (Query query : queries) {
+      Query plannedQuery = query.plan(addressBook);
+      planned.add(plannedQuery);
+      estimates.add(plannedQuery.estimate(addressBook));
+    }
+    List<Integer> order = new ArrayList<Integer>(queries.size());
+    for (int i = 0; i < queries.size(); i++) {
+      order.add(i);
+    }
+    Comparator<Integer> byEstimate = new Comparator<Integer>() {
+      @Override public int compare(Integer a, Integer b) {
+        return Integer.compare(estimates.get(a), estimates.get(b));
+      }
+    };
+    Collections.sort(order, ascending ? byEstimate : Collections.reverseOrder(byEstimate));
+    List<Query> sorted = new ArrayList<Query>(queries.size());
+    for (int i : order) {
+      sorted.add(planned.get(i));
+    }
+    return sorted;
+  }
+  
+  private static String joined(List<Query> queries, String operator) {
+    StringBuilder joined = new StringBuilder("(");
+    for (int i = 0; i < queries.size(); i++) {
+      joined.append((i == 0) ? "" : operator).append(queries.get(i));
+    }
+    return joined.append(")").toString();
+  }
+}
@@ -0,0 +1,32 @@
+package addressbook;
+
+/**
+ * Outcome of AddressBook.save: how many Contacts were written and how large the
+ * saved file is.
+ *
+ * @author Anuj Bora
+ *
+ */
+public final class SaveSummary {
+  private final int contactsWritten;
+  private final long bytesWritten;
+  
+  SaveSummary(int contactsWritten, long bytesWritten) {
+    this.contactsWritten = contactsWritten;
+    this.bytesWritten = bytesWritten;
+  }
+  
+  /** Returns the number of Contacts written, including null entries */
+  public int getContactsWritten() {
+    return contactsWritten;
+  }
+  
+  /** Returns the size of the saved file in bytes, after compression */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+  
+  @Override public String toString() {
+    return contactsWritten + " contacts, " + bytesWritten + " bytes";
+  }
+}
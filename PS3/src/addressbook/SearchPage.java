@@ -0,0 +1,63 @@
+package addressbook;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of the results of a paginated search of an AddressBook, together with
+ * the cursor from which the next page continues. See
+ * AddressBook.search(ContactAttribute, String, int).
+ * 
+ * @author Anuj Bora
+ *
+ */
+public final class SearchPage {
+  private final List<Contact> contacts;
+  private final Cursor nextCursor;
+  
+  SearchPage(List<Contact> contacts, Cursor nextCursor) {
+    this.contacts = Collections.unmodifiableList(contacts);
+    this.nextCursor = nextCursor;
+  }
+  
+  /** Returns the matched Contacts of this page, empty if nothing matched */
+  public List<Contact> getContacts() {
+    return contacts;
+  }
+  
+  /**
+   * Returns whether further matches may follow this page. The page following
+   * a full page may turn out to be empty.
+   */
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+  
+  /** Returns the cursor of the next page, null if the search is exhausted */
+  public Cursor getNextCursor() {
+    return nextCursor;
+  }
+  
+  /**
+   * Opaque position of a paginated search. It remembers the search and the slot of
+   * the last Contact returned, so that the next page continues the scan right after
+   * that slot instead of matching the earlier Contacts again. The sequence number of
+   * the slot locates it again after the AddressBook reclaimed removed slots.
+   */
+  public static final class Cursor {
+    final AddressBook addressBook;
+    final AddressBook.ContactAttribute attribute;
+    final String searchTerm;
+    final int index;
+    final long sequence;
+    
+    Cursor(AddressBook addressBook, AddressBook.ContactAttribute attribute,
+        String searchTerm, int index, long sequence) {
+      this.addressBook = addressBook;
+      this.attribute = attribute;
+      this.searchTerm = searchTerm;
+      this.index = index;
+      this.sequence = sequence;
+    }
+  }
+}
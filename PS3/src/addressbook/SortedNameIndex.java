@@ -0,0 +1,128 @@
+package addressbook;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * Index of Contacts sorted by their lowercased name, answering prefix and range
+ * queries and iterating all Contacts alphabetically. Every distinct lowercased name
+ * maps to the Contacts carrying it in insertion order, so Contacts of equal names keep
+ * the order in which they were added. A Contact added more than once is held once per
+ * occurrence. Contacts without a name aren't indexed. Contacts are tracked by identity.
+ * 
+ * @author Anuj Bora
+ *
+ */
+class SortedNameIndex implements Iterable<Contact> {
+  private final TreeMap<String, List<Contact>> byName = new TreeMap<String, List<Contact>>();
+  
+  /**
+   * Adds contact under its lowercased name. Contacts without a name aren't indexed
+   * @param contact Contact to be indexed
+   */
+  void add(Contact contact) {
+    String name = contact.attributeValue(AddressBook.ContactAttribute.NAME);
+    if (name == null) {
+      return;
+    }
+    name = name.toLowerCase();
+    List<Contact> sameName = byName.get(name);
+    if (sameName == null) {
+      sameName = new ArrayList<Contact>(1);
+      byName.put(name, sameName);
+    }
+    sameName.add(contact);
+  }
+  
+  /**
+   * Removes the first occurrence of contact from the index
+   * @param contact Contact to be removed from the index
+   */
+  void remove(Contact contact) {
+    String name = contact.attributeValue(AddressBook.ContactAttribute.NAME);
+    if (name == null) {
+      return;
+    }
+    name = name.toLowerCase();
+    List<Contact> sameName = byName.get(name);
+    if (sameName == null) {
+      return;
+    }
+    for (int i = 0; i < sameName.size(); i++) {
+      if (sameName.get(i) == contact) {
+        sameName.remove(i);
+        break;
+      }
+    }
+    if (sameName.isEmpty()) {
+      byName.remove(name);
+    }
+  }
+  
+  /**
+   * Returns the first contacts whose lowercased name starts with prefix
+   * @param prefix lowercased prefix
+   * @param limit greatest number of returned contacts
+   * @return ArrayList of up to limit contacts in alphabetical order
+   */
+  ArrayList<Contact> startingWith(String prefix, int limit) {
+    ArrayList<Contact> matched = new ArrayList<Contact>(Math.min(limit, 16));
+    for (Map.Entry<String, List<Contact>> entry : byName.tailMap(prefix, true).entrySet()) {
+      if (!entry.getKey().startsWith(prefix)) {
+        break;
+      }
+      for (Contact c : entry.getValue()) {
+        if (matched.size() == limit) {
+          return matched;
+        }
+        matched.add(c);
+      }
+    }
+    return matched;
+  }
+  
+  /**
+   * Returns the contacts whose lowercased name lies in [from, to)
+   * @param from lowercased lower bound, inclusive
+   * @param to lowercased upper bound, exclusive
+   * @return ArrayList of the contacts in alphabetical order
+   * @throws IllegalArgumentException if from is greater than to
+   */
+  ArrayList<Contact> between(String from, String to) {
+    ArrayList<Contact> matched = new ArrayList<Contact>();
+    for (List<Contact> sameName : byName.subMap(from, true, to, false).values()) {
+      matched.addAll(sameName);
+    }
+    return matched;
+  }
+  
+  /**
+   * Returns an iterator over all indexed contacts in alphabetical order. The
+   * index must not be modified while iterating.
+   */
+  @Override public Iterator<Contact> iterator() {
+    final Iterator<List<Contact>> names = byName.values().iterator();
+    return new Iterator<Contact>() {
+      private Iterator<Contact> sameName = Collections.<Contact>emptyIterator();
+      
+      @Override public boolean hasNext() {
+        while (!sameName.hasNext() && names.hasNext()) {
+          sameName = names.next().iterator();
+        }
+        return sameName.hasNext();
+      }
+      
+      @Override public Contact next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return sameName.next();
+      }
+    };
+  }
+}
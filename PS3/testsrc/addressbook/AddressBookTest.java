@@ -3,6 +3,7 @@ package addressbook;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import addressbook.AddressBook.ContactAttribute;
 
@@ -12,7 +13,10 @@ import org.junit.Test;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.stream.Collectors;
 
 public class AddressBookTest {
   private AddressBook addressbook;
@@ -240,6 +244,127 @@ public class AddressBookTest {
     assertEquals(2, matchedContacts.size());
   }
 
+  @Test
+  public void testSearchLazily_LimitStopsEarly() {
+    for (int i = 0; i < 5; i++) {
+      assertTrue(addressbook.addContact(
+          new Contact.Builder().withName("Tim " + i).build()));
+    }
+    Iterator<Contact> matches =
+        addressbook.searchLazily(ContactAttribute.NAME, "tim").limit(2).iterator();
+    assertEquals("Tim 0", matches.next().getName());
+    assertEquals("Tim 1", matches.next().getName());
+    assertFalse(matches.hasNext());
+  }
+
+  @Test
+  public void testSearchLazily_SameResultsAsSearch() {
+    Contact c = new Contact.Builder().withName("Tim").build();
+    assertTrue(addressbook.addContact(c));
+    assertTrue(addressbook.addContact(new Contact.Builder().withName("Tom").build()));
+    assertTrue(addressbook.addContact(new Contact.Builder().withNote("Tim").build()));
+    assertEquals(addressbook.search(ContactAttribute.NAME, "Ti"), addressbook
+        .searchLazily(ContactAttribute.NAME, "Ti").collect(Collectors.toList()));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testSearchLazily_Null() {
+    addressbook.searchLazily(ContactAttribute.NAME, null);
+  }
+
+  @Test
+  public void testSearch_Pages() {
+    for (int i = 0; i < 5; i++) {
+      assertTrue(addressbook.addContact(
+          new Contact.Builder().withName("Tim " + i).build()));
+      assertTrue(addressbook.addContact(
+          new Contact.Builder().withName("Tom " + i).build()));
+    }
+    SearchPage page = addressbook.search(ContactAttribute.NAME, "tim", 2);
+    assertEquals(2, page.getContacts().size());
+    assertEquals("Tim 1", page.getContacts().get(1).getName());
+    page = addressbook.search(page.getNextCursor(), 2);
+    assertEquals("Tim 2", page.getContacts().get(0).getName());
+    assertEquals("Tim 3", page.getContacts().get(1).getName());
+    page = addressbook.search(page.getNextCursor(), 2);
+    assertEquals(1, page.getContacts().size());
+    assertEquals("Tim 4", page.getContacts().get(0).getName());
+    assertFalse(page.hasNext());
+  }
+
+  @Test
+  public void testSearch_Pages_EarlierContactRemoved() {
+    Contact first = new Contact.Builder().withName("Tim 0").build();
+    assertTrue(addressbook.addContact(first));
+    assertTrue(addressbook.addContact(new Contact.Builder().withName("Tim 1").build()));
+    assertTrue(addressbook.addContact(new Contact.Builder().withName("Tim 2").build()));
+    SearchPage page = addressbook.search(ContactAttribute.NAME, "tim", 2);
+    assertTrue(addressbook.removeContact(first));
+    page = addressbook.search(page.getNextCursor(), 2);
+    assertEquals(1, page.getContacts().size());
+    assertEquals("Tim 2", page.getContacts().get(0).getName());
+  }
+
+  @Test
+  public void testSearch_Pages_LastContactRemoved() {
+    assertTrue(addressbook.addContact(new Contact.Builder().withName("Tim 0").build()));
+    assertTrue(addressbook.addContact(new Contact.Builder().withName("Tim 1").build()));
+    SearchPage page = addressbook.search(ContactAttribute.NAME, "tim", 1);
+    assertTrue(addressbook.removeContact(page.getContacts().get(0)));
+    page = addressbook.search(page.getNextCursor(), 1);
+    assertEquals("Tim 1", page.getContacts().get(0).getName());
+  }
+  
+  @Test
+  public void testSearch_Pages_LastContactRemovedAndReclaimed() {
+    Contact[] contacts = new Contact[6];
+    for (int i = 0; i < contacts.length; i++) {
+      contacts[i] = new Contact.Builder().withName("Tim " + i).build();
+      assertTrue(addressbook.addContact(contacts[i]));
+    }
+    SearchPage page = addressbook.search(ContactAttribute.NAME, "tim", 3);
+    //Removing four of six Contacts reclaims the removed slots
+    for (int i = 0; i < 4; i++) {
+      assertTrue(addressbook.removeContact(contacts[i]));
+    }
+    assertEquals(2, addressbook.numberOfContacts());
+    page = addressbook.search(page.getNextCursor(), 3);
+    assertEquals(2, page.getContacts().size());
+    assertEquals("Tim 4", page.getContacts().get(0).getName());
+  }
+  
+  @Test
+  public void testSearch_Pages_ContactAddedTwice() {
+    Contact twice = new Contact.Builder().withName("Tim twice").build();
+    Contact[] others = new Contact[5];
+    for (int i = 0; i < others.length; i++) {
+      others[i] = new Contact.Builder().withName("Tim " + i).build();
+    }
+    //twice, Tim 0, Tim 1, twice, Tim 2, Tim 3, Tim 4
+    addressbook.addContact(twice);
+    addressbook.addContact(others[0]);
+    addressbook.addContact(others[1]);
+    addressbook.addContact(twice);
+    addressbook.addContact(others[2]);
+    addressbook.addContact(others[3]);
+    addressbook.addContact(others[4]);
+    SearchPage page = addressbook.search(ContactAttribute.NAME, "tim", 4);
+    assertTrue(page.getContacts().get(3) == twice);
+    //Reclaiming the slots moves both occurrences; the page ended at the second one
+    for (int i = 0; i < 4; i++) {
+      assertTrue(addressbook.removeContact(others[i]));
+    }
+    assertEquals(3, addressbook.numberOfContacts());
+    page = addressbook.search(page.getNextCursor(), 4);
+    assertEquals(1, page.getContacts().size());
+    assertTrue(page.getContacts().get(0) == others[4]);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testSearch_Pages_InvalidPageSize() {
+    addressbook.search(ContactAttribute.NAME, "tim", 0);
+  }
+
   @Test
   public void testSave_NonEmptyAddressBook()
       throws IOException, FileNotFoundException {
@@ -332,6 +457,385 @@ public class AddressBookTest {
         .get(0).getAddress());
   }
 
+  @Test
+  public void testLoadContacts_Gzip() throws IOException, FileNotFoundException {
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(addressbook.addContact(
+          new Contact.Builder().withName("Anuj " + i).withNote("ABCD").build()));
+    }
+    File temp = File.createTempFile("contacts", ".gson.gz");
+    addressbook.save(temp.toString());
+    // gzip files start with the magic bytes 1f 8b
+    byte[] content = Files.readAllBytes(temp.toPath());
+    assertEquals((byte) 0x1f, content[0]);
+    assertEquals((byte) 0x8b, content[1]);
+    AddressBook addressbook = new AddressBook(temp.toString());
+    assertEquals(1000, addressbook.numberOfContacts());
+    assertEquals("Anuj 999", addressbook.search(ContactAttribute.NAME, "Anuj 999")
+        .get(0).getName());
+  }
+
+  @Test
+  public void testLoadContacts_Deflate() throws IOException, FileNotFoundException {
+    Contact c = new Contact.Builder().withName("Anuj").build();
+    assertTrue(addressbook.addContact(c));
+    File temp = File.createTempFile("contacts", ".deflate");
+    addressbook.save(temp.toString());
+    AddressBook addressbook = new AddressBook(temp.toString());
+    assertEquals(1, addressbook.numberOfContacts());
+    assertEquals("Anuj", addressbook.search(ContactAttribute.NAME, "Anuj")
+        .get(0).getName());
+  }
+
+  @Test(expected = IOException.class)
+  public void testLoadContacts_GzipOfUncompressedFile()
+      throws IOException, FileNotFoundException {
+    File temp = File.createTempFile("contacts", ".gson");
+    addressbook.save(temp.toString());
+    File renamed = new File(temp.toString() + ".gz");
+    assertTrue(temp.renameTo(renamed));
+    new AddressBook(renamed.toString());
+  }
+
+  @Test
+  public void testLoadContacts_GzipOfUncompressedFileIsClosed()
+      throws IOException, FileNotFoundException {
+    File temp = File.createTempFile("contacts", ".gson.gz");
+    Files.write(temp.toPath(), "[]".getBytes("UTF-8"));
+    // Open file descriptors can only be counted where /proc is available
+    File descriptors = new File("/proc/self/fd");
+    int before = descriptors.isDirectory() ? descriptors.list().length : 0;
+    for (int i = 0; i < 100; i++) {
+      try {
+        new AddressBook(temp.toString());
+        fail("An uncompressed file can't be read as gzip");
+      } catch (IOException headerNotRead) {
+        continue;
+      }
+    }
+    int after = descriptors.isDirectory() ? descriptors.list().length : 0;
+    assertTrue("Leaked " + (after - before) + " files", after - before < 10);
+    assertTrue(temp.delete());
+  }
+
+  @Test
+  public void testSave_Summary() throws IOException, FileNotFoundException {
+    addressbook.addContact(new Contact.Builder().withName("Tim").build());
+    addressbook.addContact(new Contact.Builder().withName("Tom").build());
+    File temp = File.createTempFile("contacts", ".gson");
+    SaveSummary summary = addressbook.save(temp.toString());
+    assertEquals(2, summary.getContactsWritten());
+    assertEquals(temp.length(), summary.getBytesWritten());
+  }
+
+  @Test
+  public void testSave_ReplacesFileWithoutLeftovers() throws IOException, FileNotFoundException {
+    File directory = Files.createTempDirectory("contacts").toFile();
+    File file = new File(directory, "contacts.gson");
+    addressbook.addContact(new Contact.Builder().withName("Tim").build());
+    addressbook.save(file.toString());
+    addressbook.addContact(new Contact.Builder().withName("Tom").build());
+    addressbook.save(file.toString());
+    assertEquals(2, new AddressBook(file.toString()).numberOfContacts());
+    assertEquals(1, directory.list().length);
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void testSave_MissingDirectory() throws IOException, FileNotFoundException {
+    File directory = Files.createTempDirectory("contacts").toFile();
+    addressbook.save(new File(new File(directory, "missing"), "contacts.gson").toString());
+  }
+
+  @Test
+  public void testLoadContacts_EmptyArray() throws IOException, FileNotFoundException {
+    File temp = File.createTempFile("contacts", ".gson");
+    Files.write(temp.toPath(), "[ ]".getBytes("UTF-8"));
+    assertEquals(0, new AddressBook(temp.toString()).numberOfContacts());
+  }
+
+  @Test
+  public void testLoadContacts_StreamedElements() throws IOException, FileNotFoundException {
+    File temp = File.createTempFile("contacts", ".gson");
+    Files.write(temp.toPath(), ("[{\"name\":{\"str\":\"Tim\"}},\n null,\n"
+        + " {\"name\":{\"str\":\"Tom\"}}]").getBytes("UTF-8"));
+    AddressBook addressbook = new AddressBook(temp.toString());
+    assertEquals(3, addressbook.numberOfContacts());
+    assertEquals("Tom", addressbook.search(ContactAttribute.NAME, "Tom").get(0).getName());
+  }
+
+  @Test
+  public void testRemoveContact_ByContent() {
+    Contact c = new Contact.Builder().withName("Tim").withEmail("tim@nyu.edu").build();
+    addressbook.addContact(new Contact.Builder().withName("Tim").build());
+    addressbook.addContact(c);
+    Contact copy = new Contact.Builder().withName("Tim").withEmail("tim@nyu.edu").build();
+    assertFalse(addressbook.removeContact(copy));
+    assertTrue(addressbook.removeContact(copy, AddressBook.Equality.CONTENT));
+    assertFalse(addressbook.removeContact(copy, AddressBook.Equality.CONTENT));
+    assertEquals(1, addressbook.numberOfContacts());
+    assertEquals(0, addressbook.search(ContactAttribute.EMAIL, "tim").size());
+  }
+
+  @Test
+  public void testRemoveAll() {
+    ArrayList<Contact> removed = new ArrayList<Contact>();
+    for (int i = 0; i < 100; i++) {
+      Contact c = new Contact.Builder().withName("Anuj " + i).build();
+      addressbook.addContact(c);
+      if (i % 3 != 0) {
+        removed.add(c);
+      }
+    }
+    removed.add(new Contact.Builder().withName("Anuj 0").build());
+    assertEquals(66, addressbook.removeAll(removed));
+    assertEquals(34, addressbook.numberOfContacts());
+    ArrayList<Contact> result = addressbook.search(ContactAttribute.NAME, "Anuj");
+    assertEquals(34, result.size());
+    assertEquals("Anuj 3", result.get(1).getName());
+    assertEquals("Anuj 99", result.get(33).getName());
+    assertEquals(0, addressbook.removeAll(removed));
+  }
+
+  @Test
+  public void testRemoveAll_ByContent() {
+    addressbook.addContact(new Contact.Builder().withName("Tim").build());
+    addressbook.addContact(new Contact.Builder().withName("Tim").build());
+    addressbook.addContact(new Contact.Builder().withName("Tom").build());
+    ArrayList<Contact> duplicates = new ArrayList<Contact>();
+    duplicates.add(new Contact.Builder().withName("Tim").build());
+    assertEquals(1, addressbook.removeAll(duplicates, AddressBook.Equality.CONTENT));
+    assertEquals("Tim\n\nTom\n\n", addressbook.toString());
+  }
+
+  @Test
+  public void testSearch_PagesAfterRemoval() {
+    Contact[] contacts = new Contact[10];
+    for (int i = 0; i < contacts.length; i++) {
+      contacts[i] = new Contact.Builder().withName("Anuj " + i).build();
+      addressbook.addContact(contacts[i]);
+    }
+    SearchPage page = addressbook.search(ContactAttribute.NAME, "Anuj", 3);
+    for (int i = 0; i < 8; i++) {
+      if (i != 2) {
+        addressbook.removeContact(contacts[i]);
+      }
+    }
+    page = addressbook.search(page.getNextCursor(), 3);
+    assertEquals(2, page.getContacts().size());
+    assertEquals("Anuj 8", page.getContacts().get(0).getName());
+  }
+
+  @Test
+  public void testSearch_IndexedTermMatchesScan() {
+    for (int i = 0; i < 100; i++) {
+      addressbook.addContact(new Contact.Builder().withName("Anuj " + i)
+          .withEmail("anuj" + i + "@nyu.edu").build());
+    }
+    ArrayList<Contact> result = addressbook.search(ContactAttribute.NAME, "NUJ 1");
+    assertEquals(11, result.size());
+    assertEquals("Anuj 1", result.get(0).getName());
+    assertEquals("Anuj 19", result.get(10).getName());
+    assertEquals(1, addressbook.search(ContactAttribute.EMAIL, "anuj42@").size());
+    assertEquals(0, addressbook.search(ContactAttribute.EMAIL, "anuj420").size());
+  }
+
+  @Test
+  public void testSearch_IndexedTermAfterRemove() {
+    Contact c1 = new Contact.Builder().withName("Tim Smith").build();
+    Contact c2 = new Contact.Builder().withName("Tom Smith").build();
+    addressbook.addContact(c1);
+    addressbook.addContact(c2);
+    assertTrue(addressbook.removeContact(c1));
+    ArrayList<Contact> result = addressbook.search(ContactAttribute.NAME, "Smith");
+    assertEquals(1, result.size());
+    assertTrue(result.get(0) == c2);
+  }
+
+  @Test
+  public void testSearch_IndexedTermDuplicateContact() {
+    Contact c1 = new Contact.Builder().withName("Tim").build();
+    Contact c2 = new Contact.Builder().withName("Timothy").build();
+    addressbook.addContact(c1);
+    addressbook.addContact(c2);
+    addressbook.addContact(c1);
+    ArrayList<Contact> result = addressbook.search(ContactAttribute.NAME, "tim");
+    assertEquals(3, result.size());
+    assertTrue(result.get(0) == c1 && result.get(1) == c2 && result.get(2) == c1);
+    // Removing one occurrence keeps the other one searchable
+    assertTrue(addressbook.removeContact(c1));
+    result = addressbook.search(ContactAttribute.NAME, "tim");
+    assertEquals(2, result.size());
+    assertTrue(result.get(0) == c2 && result.get(1) == c1);
+    assertTrue(addressbook.removeContact(c1));
+    assertEquals(1, addressbook.search(ContactAttribute.NAME, "tim").size());
+  }
+
+  @Test
+  public void testSearch_IndexedTermSkipsUnsetAttribute() {
+    addressbook.addContact(new Contact.Builder().withName("Tim").build());
+    addressbook.addContact(new Contact.Builder().withName("Tom").withNote("Timely").build());
+    ArrayList<Contact> result = addressbook.search(ContactAttribute.NOTE, "time");
+    assertEquals(1, result.size());
+    assertEquals("Tom", result.get(0).getName());
+  }
+
+  @Test
+  public void testSearch_IndexedPhoneNumberIgnoresFormatting() {
+    addressbook.addContact(new Contact.Builder().withName("Tim")
+        .withPhoneNumber("(212) 555-0199").build());
+    addressbook.addContact(new Contact.Builder().withName("Tom")
+        .withPhoneNumber("212-555-0100").build());
+    assertEquals(2, addressbook.search(ContactAttribute.PHONE, "212 555").size());
+    ArrayList<Contact> result = addressbook.search(ContactAttribute.PHONE, "5-0199");
+    assertEquals(1, result.size());
+    assertEquals("Tim", result.get(0).getName());
+  }
+
+  @Test
+  public void testSearch_ShortPhoneNumberTerm() {
+    addressbook.addContact(new Contact.Builder().withName("Tim")
+        .withPhoneNumber("(212) 555-0199").build());
+    addressbook.addContact(new Contact.Builder().withName("Tom")
+        .withPhoneNumber("718").build());
+    addressbook.addContact(new Contact.Builder().withName("Ann").build());
+    assertEquals(1, addressbook.search(ContactAttribute.PHONE, "9").size());
+    assertEquals(2, addressbook.search(ContactAttribute.PHONE, "1").size());
+    assertEquals("Tom", addressbook.search(ContactAttribute.PHONE, "71").get(0).getName());
+    assertEquals(2, addressbook.search(ContactAttribute.PHONE, "-").size());
+    assertEquals(0, addressbook.search(ContactAttribute.PHONE, "6").size());
+  }
+
+  @Test
+  public void testSearch_PhoneNumberOfLoadedContacts() throws IOException, FileNotFoundException {
+    addressbook.addContact(new Contact.Builder().withName("Tim")
+        .withPhoneNumber("(212) 555-0199").build());
+    File temp = File.createTempFile("contacts", ".gson");
+    addressbook.save(temp.toString());
+    AddressBook loaded = new AddressBook(temp.toString());
+    assertEquals(1, loaded.search(ContactAttribute.PHONE, "2125550199").size());
+    assertEquals(1, loaded.search(ContactAttribute.PHONE, "55").size());
+    assertEquals(0, loaded.search(ContactAttribute.PHONE, "2126").size());
+  }
+
+  @Test
+  public void testSearch_IndexedTermOfLoadedContacts() throws IOException, FileNotFoundException {
+    addressbook.addContact(new Contact.Builder().withName("Tim").withAddress("Broadway").build());
+    File temp = File.createTempFile("contacts", ".gson");
+    addressbook.save(temp.toString());
+    AddressBook loaded = new AddressBook(temp.toString());
+    assertEquals(1, loaded.search(ContactAttribute.ADDRESS, "broad").size());
+    assertEquals(1, loaded.search(ContactAttribute.ADDRESS, "BR").size());
+    loaded.addContact(new Contact.Builder().withName("Tom").withAddress("Broad St").build());
+    assertEquals(2, loaded.search(ContactAttribute.ADDRESS, "broad").size());
+  }
+
+  @Test
+  public void testSearchQuery_And() {
+    addressbook.addContact(new Contact.Builder().withName("Tim Smith")
+        .withEmail("tim@nyu.edu").build());
+    addressbook.addContact(new Contact.Builder().withName("Tom Smith")
+        .withEmail("tom@gmail.com").build());
+    addressbook.addContact(new Contact.Builder().withName("Ann Jones")
+        .withEmail("ann@nyu.edu").build());
+    ArrayList<Contact> result = addressbook.search(Query.and(
+        Query.contains(ContactAttribute.EMAIL, "nyu.edu"),
+        Query.contains(ContactAttribute.NAME, "smith")));
+    assertEquals(1, result.size());
+    assertEquals("Tim Smith", result.get(0).getName());
+  }
+
+  @Test
+  public void testSearchQuery_OrInDirectoryOrder() {
+    addressbook.addContact(new Contact.Builder().withName("Tim").withNote("nyu").build());
+    addressbook.addContact(new Contact.Builder().withName("Tom").build());
+    addressbook.addContact(new Contact.Builder().withName("Ann").withEmail("a@nyu.edu").build());
+    ArrayList<Contact> result = addressbook.search(Query.or(
+        Query.contains(ContactAttribute.EMAIL, "nyu"),
+        Query.contains(ContactAttribute.NOTE, "NYU")));
+    assertEquals(2, result.size());
+    assertEquals("Tim", result.get(0).getName());
+    assertEquals("Ann", result.get(1).getName());
+  }
+
+  @Test
+  public void testSearchQuery_ShortTerms() {
+    addressbook.addContact(new Contact.Builder().withName("Tim").withEmail("t@nyu.edu").build());
+    addressbook.addContact(new Contact.Builder().withName("Tom").withEmail("t@nyu.edu").build());
+    // Neither term can be looked up in the index, so every contact is matched
+    assertEquals(1, addressbook.search(Query.and(
+        Query.contains(ContactAttribute.NAME, "ti"),
+        Query.contains(ContactAttribute.EMAIL, "t@"))).size());
+    assertEquals(2, addressbook.search(Query.or(
+        Query.contains(ContactAttribute.NAME, "o"),
+        Query.contains(ContactAttribute.NAME, "timothy"),
+        Query.contains(ContactAttribute.NAME, "i"))).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSearchQuery_EmptyAnd() {
+    Query.and();
+  }
+
+  @Test
+  public void testAutocompleteName() {
+    String[] names = {"Mark", "anna", "Maria", "mallory", "Ma", "Tim", "Matt"};
+    for (String name : names) {
+      addressbook.addContact(new Contact.Builder().withName(name).build());
+    }
+    addressbook.addContact(new Contact.Builder().withEmail("ma@nyu.edu").build());
+    ArrayList<Contact> result = addressbook.autocompleteName("MA", 3);
+    assertEquals(3, result.size());
+    assertEquals("Ma", result.get(0).getName());
+    assertEquals("mallory", result.get(1).getName());
+    assertEquals("Maria", result.get(2).getName());
+    assertEquals(5, addressbook.autocompleteName("ma", 10).size());
+    assertEquals(0, addressbook.autocompleteName("mb", 10).size());
+  }
+
+  @Test
+  public void testAutocompleteName_AfterRemove() {
+    Contact c1 = new Contact.Builder().withName("Tim").build();
+    Contact c2 = new Contact.Builder().withName("tim").build();
+    addressbook.addContact(c1);
+    addressbook.addContact(c2);
+    addressbook.addContact(c1);
+    assertTrue(addressbook.removeContact(c1));
+    ArrayList<Contact> result = addressbook.autocompleteName("ti", 10);
+    assertEquals(2, result.size());
+    assertTrue(result.get(0) == c2 && result.get(1) == c1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAutocompleteName_InvalidLimit() {
+    addressbook.autocompleteName("ma", 0);
+  }
+
+  @Test
+  public void testSearchNameRange() {
+    String[] names = {"Tim", "anna", "Bob", "Nick", "mallory", "Zoe"};
+    for (String name : names) {
+      addressbook.addContact(new Contact.Builder().withName(name).build());
+    }
+    ArrayList<Contact> result = addressbook.searchNameRange("a", "N");
+    assertEquals(3, result.size());
+    assertEquals("anna", result.get(0).getName());
+    assertEquals("Bob", result.get(1).getName());
+    assertEquals("mallory", result.get(2).getName());
+  }
+
+  @Test
+  public void testContactsByName() {
+    String[] names = {"Tim", "anna", "Bob"};
+    for (String name : names) {
+      addressbook.addContact(new Contact.Builder().withName(name).build());
+    }
+    StringBuilder ordered = new StringBuilder();
+    for (Contact c : addressbook.contactsByName()) {
+      ordered.append(c.getName()).append(" ");
+    }
+    assertEquals("anna Bob Tim ", ordered.toString());
+  }
+
   @Test
   public void testToString_ZeroContacts() {
     String toStringOutput = addressbook.toString();
@@ -241,4 +241,32 @@ public class ContactTest {
     String toStringResult = c.toString();
     assertEquals("Tim\na@b.com\n1234\n425 Blvd.\nabcd\n", toStringResult);
   }
+
+  @Test
+  public void testMatchPhone_IgnoresFormatting() {
+    Contact c = new Contact.Builder().withPhoneNumber("+1 (212) 555-0199").build();
+    assertTrue(c.match(AddressBook.ContactAttribute.PHONE, "2125550199"));
+    assertTrue(c.match(AddressBook.ContactAttribute.PHONE, "55-501"));
+    assertTrue(c.match(AddressBook.ContactAttribute.PHONE, "no digits"));
+    assertFalse(c.match(AddressBook.ContactAttribute.PHONE, "0199 9"));
+    assertFalse(c.match(AddressBook.ContactAttribute.PHONE, "2 2"));
+  }
+
+  @Test
+  public void testMatchPhone_WithoutDigits() {
+    Contact c = new Contact.Builder().withPhoneNumber("ABCD").build();
+    assertTrue(c.match(AddressBook.ContactAttribute.PHONE, ""));
+    assertFalse(c.match(AddressBook.ContactAttribute.PHONE, "1"));
+  }
+
+  @Test
+  public void testMatch_IgnoresCase() {
+    Contact c = new Contact.Builder().withName("Tim O'Brien")
+        .withNote("\u00c9cole \u00c0 Paris").build();
+    assertTrue(c.match(AddressBook.ContactAttribute.NAME, "o'BRIEN"));
+    assertTrue(c.match(AddressBook.ContactAttribute.NOTE, "\u00e9cole \u00e0"));
+    assertTrue(c.matchLowercase(AddressBook.ContactAttribute.NAME, "tim o"));
+    assertFalse(c.matchLowercase(AddressBook.ContactAttribute.NAME, "TIM"));
+    assertFalse(c.match(AddressBook.ContactAttribute.EMAIL, "tim"));
+  }
 }
\ No newline at end of file